@@ -0,0 +1,49 @@
+package com.reactivespring.exceptionhandler;
+
+import com.reactivespring.exception.ReviewNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Error response rendering, including the error log the handler writes for every exception.
+ * The jmh logback.xml discards log events after they are built, so console I/O is not part of the numbers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class GlobalErrorHandlerBenchmark {
+
+    private GlobalErrorHandler globalErrorHandler;
+    private ReviewNotFoundException notFound;
+    private RuntimeException unexpected;
+
+    @Setup
+    public void setUp() {
+        globalErrorHandler = new GlobalErrorHandler();
+        notFound = new ReviewNotFoundException("Review not found for the given Review id abc");
+        unexpected = new RuntimeException("Unexpected Error");
+    }
+
+    @Benchmark
+    public MockServerWebExchange handle_notFound() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.put("/v1/reviews/abc"));
+        globalErrorHandler.handle(exchange, notFound).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange handle_internalServerError() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/reviews"));
+        globalErrorHandler.handle(exchange, unexpected).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,79 @@
+package com.reactivespring.handler;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.repository.ReviewRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.stream.EventBroadcaster;
+import com.reactivespring.stream.StreamProperties;
+import com.reactivespring.tracing.SignalTracing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ReviewHandler.addReview} end to end short of the HTTP layer: body, validation, save, summary fold,
+ * stream emit and the 201 response, over in-memory repositories that answer immediately.
+ * For a review failing validation the numbers include the error log, which the jmh logback.xml discards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class AddReviewBenchmark {
+
+    private ReviewHandler reviewHandler;
+    private MockServerRequest validRequest;
+    private MockServerRequest invalidRequest;
+
+    @Setup
+    public void setUp() {
+        var streamProperties = new StreamProperties();
+        reviewHandler = new ReviewHandler(stubRepository(ReviewRepository.class),
+                stubRepository(ReviewSummaryRepository.class),
+                new EventBroadcaster<>("reviews", streamProperties), streamProperties, new SignalTracing());
+
+        validRequest = MockServerRequest.builder()
+                .body(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        invalidRequest = MockServerRequest.builder()
+                .body(Mono.just(new Review(null, null, "Awesome Movie", -9.0)));
+    }
+
+    @Benchmark
+    public ServerResponse addReview_valid() {
+        return reviewHandler.addReview(validRequest).block();
+    }
+
+    @Benchmark
+    public Object addReview_invalid() {
+        try {
+            return reviewHandler.addReview(invalidRequest).block();
+        } catch (ReviewDataException e) {
+            return e;
+        }
+    }
+
+    // save hands the review back as stored, the summary fold completes empty, anything else is not on this path
+    private static <T> T stubRepository(Class<T> repositoryType) {
+        return repositoryType.cast(Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "save":
+                            return Mono.just(args[0]);
+                        case "applyChange":
+                            return Mono.empty();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }));
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactivespring.handler;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.tracing.SignalTracing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Validation of a review on the add path, for a valid review and for one failing both constraints.
+ * validate_* runs the handler's hand-written validator; beanValidation_* runs the Bean Validation engine the
+ * way the handler used to, as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ReviewValidationBenchmark {
+
+    private ReviewHandler reviewHandler;
+    private Validator validator;
+    private Review validReview;
+    private Review invalidReview;
+
+    @Setup
+    public void setUp() {
+        reviewHandler = new ReviewHandler(null, null, null, null, new SignalTracing());
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+        validReview = new Review(null, 1L, "Awesome Movie", 9.0);
+        invalidReview = new Review(null, null, "Awesome Movie", -9.0);
+    }
+
+    @Benchmark
+    public Review validate_valid() {
+        reviewHandler.validate(validReview);
+        return validReview;
+    }
+
+    @Benchmark
+    public Object validate_invalid() {
+        try {
+            reviewHandler.validate(invalidReview);
+            return invalidReview;
+        } catch (ReviewDataException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Review beanValidation_valid() {
+        beanValidate(validReview);
+        return validReview;
+    }
+
+    @Benchmark
+    public Object beanValidation_invalid() {
+        try {
+            beanValidate(invalidReview);
+            return invalidReview;
+        } catch (ReviewDataException e) {
+            return e;
+        }
+    }
+
+    private void beanValidate(Review review) {
+        var constraintViolations = validator.validate(review);
+        if (constraintViolations.size() > 0) {
+            throw new ReviewDataException(constraintViolations
+                    .stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.domain.BenchmarkMovies;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.tracing.SignalTracing;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The aggregation in {@link MoviesController#retrieveMovieById} over clients answering synchronously from memory,
+ * so the numbers cover the operator chain, projection parsing and ETag computation but no I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MoviesControllerBenchmark {
+
+    @Param({"true", "false"})
+    private boolean parallelAggregation;
+
+    @Param({"10", "100"})
+    private int reviewCount;
+
+    private MoviesController moviesController;
+    private String etag;
+
+    @Setup
+    public void setUp() {
+        var restClientProperties = new RestClientProperties();
+        restClientProperties.getMovieInfoCache().setEnabled(false);
+        var meterRegistry = new SimpleMeterRegistry();
+
+        var moviesInfoRestClient = new StubMoviesInfoRestClient(restClientProperties, meterRegistry,
+                BenchmarkMovies.movieInfo());
+        var reviewsRestClient = new StubReviewsRestClient(restClientProperties, meterRegistry,
+                BenchmarkMovies.reviews(reviewCount));
+
+        moviesController = new MoviesController(moviesInfoRestClient, reviewsRestClient, null,
+                BenchmarkMovies.objectMapper());
+        ReflectionTestUtils.setField(moviesController, "parallelAggregation", parallelAggregation);
+
+        etag = retrieveMovieById().getHeaders().getETag();
+    }
+
+    @Benchmark
+    public ResponseEntity<Movie> retrieveMovieById() {
+        return moviesController.retrieveMovieById("abc", null, null, null).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Movie> retrieveMovieById_notModified() {
+        return moviesController.retrieveMovieById("abc", null, null, etag).block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Movie> retrieveMovieById_summaryView() {
+        return moviesController.retrieveMovieById("abc", MoviesController.VIEW_SUMMARY, null, null).block();
+    }
+
+    static class StubMoviesInfoRestClient extends MoviesInfoRestClient {
+
+        private final MovieInfo movieInfo;
+
+        StubMoviesInfoRestClient(RestClientProperties restClientProperties, SimpleMeterRegistry meterRegistry,
+                                 MovieInfo movieInfo) {
+            super(WebClient.create(), restClientProperties, CircuitBreaker.ofDefaults("moviesInfo"),
+                    Bulkhead.ofDefaults("moviesInfo"), meterRegistry, null, new SignalTracing());
+            this.movieInfo = movieInfo;
+        }
+
+        @Override
+        public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+            return Mono.just(movieInfo);
+        }
+
+        @Override
+        public Mono<MovieInfo> retrieveMovieInfo(String movieId, Set<String> fields) {
+            return Mono.just(movieInfo);
+        }
+    }
+
+    static class StubReviewsRestClient extends ReviewsRestClient {
+
+        private final List<Review> reviews;
+        private final ReviewSummary reviewSummary;
+
+        StubReviewsRestClient(RestClientProperties restClientProperties, SimpleMeterRegistry meterRegistry,
+                              List<Review> reviews) {
+            super(WebClient.create(), restClientProperties, CircuitBreaker.ofDefaults("reviews"),
+                    Bulkhead.ofDefaults("reviews"), meterRegistry, null);
+            this.reviews = reviews;
+            this.reviewSummary = new ReviewSummary(1L, reviews.size(), 4.5, Map.of("9", (long) reviews.size()));
+        }
+
+        @Override
+        public Flux<Review> retrieveReviews(String movieId, Set<String> fields) {
+            return Flux.fromIterable(reviews);
+        }
+
+        @Override
+        public Mono<ReviewSummary> retrieveReviewSummary(String movieId) {
+            return Mono.just(reviewSummary);
+        }
+    }
+}
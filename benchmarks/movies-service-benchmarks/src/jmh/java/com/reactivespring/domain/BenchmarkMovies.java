@@ -0,0 +1,38 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fixtures shared by the benchmarks, shaped like the documents the upstream services return.
+ */
+public class BenchmarkMovies {
+
+    /**
+     * Configured like the ObjectMapper Spring Boot auto-configures for the service.
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    public static MovieInfo movieInfo() {
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        movieInfo.setVersion(3L);
+        return movieInfo;
+    }
+
+    public static List<Review> reviews(int reviewCount) {
+        return IntStream.range(0, reviewCount)
+                .mapToObj(i -> new Review("review" + i, 1L, "Awesome Movie " + i, (double) (i % 10), 0L))
+                .collect(Collectors.toList());
+    }
+}
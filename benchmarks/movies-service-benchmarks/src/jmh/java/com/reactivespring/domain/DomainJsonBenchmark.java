@@ -0,0 +1,58 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding and decoding of the single documents exchanged with the upstream services.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DomainJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private MovieInfo movieInfo;
+    private Review review;
+    private byte[] movieInfoJson;
+    private byte[] reviewJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = BenchmarkMovies.objectMapper();
+        movieInfo = BenchmarkMovies.movieInfo();
+        review = BenchmarkMovies.reviews(1).get(0);
+        movieInfoJson = objectMapper.writeValueAsBytes(movieInfo);
+        reviewJson = objectMapper.writeValueAsBytes(review);
+    }
+
+    @Benchmark
+    public byte[] serializeMovieInfo() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movieInfo);
+    }
+
+    @Benchmark
+    public MovieInfo deserializeMovieInfo() throws IOException {
+        return objectMapper.readValue(movieInfoJson, MovieInfo.class);
+    }
+
+    @Benchmark
+    public byte[] serializeReview() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(review);
+    }
+
+    @Benchmark
+    public Review deserializeReview() throws IOException {
+        return objectMapper.readValue(reviewJson, Review.class);
+    }
+}
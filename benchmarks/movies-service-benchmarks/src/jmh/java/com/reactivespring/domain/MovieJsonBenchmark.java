@@ -0,0 +1,48 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding and decoding of the Movie aggregate, whose size grows with the number of reviews.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MovieJsonBenchmark {
+
+    @Param({"10", "1000"})
+    private int reviewCount;
+
+    private ObjectMapper objectMapper;
+    private Movie movie;
+    private byte[] movieJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = BenchmarkMovies.objectMapper();
+        movie = new Movie(BenchmarkMovies.movieInfo(), BenchmarkMovies.reviews(reviewCount));
+        movieJson = objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] serializeMovie() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public Movie deserializeMovie() throws IOException {
+        return objectMapper.readValue(movieJson, Movie.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.loadtest;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reference numbers a run must stay within. Latencies and throughput may drift by {@code tolerance} (a ratio);
+ * the error rate is an absolute ceiling. Operations missing from the baseline are not checked.
+ */
+@Data
+public class Baseline {
+
+    private double tolerance = 0.2;
+    private Map<String, Limits> operations = new LinkedHashMap<>();
+
+    @Data
+    public static class Limits {
+        private double p99Ms;
+        private double p999Ms;
+        private double errorRate;
+        private double throughput;
+    }
+
+    public static Baseline of(LoadTestReport report) {
+        var baseline = new Baseline();
+        report.getOperations().forEach((name, result) -> {
+            var limits = new Limits();
+            limits.setP99Ms(result.getP99Ms());
+            limits.setP999Ms(result.getP999Ms());
+            limits.setErrorRate(result.getErrorRate());
+            limits.setThroughput(result.getThroughput());
+            baseline.getOperations().put(name, limits);
+        });
+        return baseline;
+    }
+
+    /**
+     * @return one message per regression, empty when the report is within the baseline
+     */
+    public List<String> regressions(LoadTestReport report) {
+        var regressions = new ArrayList<String>();
+        operations.forEach((name, limits) -> {
+            var result = report.getOperations().get(name);
+            if (result == null) {
+                return;
+            }
+            if (result.getP99Ms() > limits.getP99Ms() * (1 + tolerance)) {
+                regressions.add(name + " p99 " + result.getP99Ms() + "ms > baseline " + limits.getP99Ms() + "ms");
+            }
+            if (result.getP999Ms() > limits.getP999Ms() * (1 + tolerance)) {
+                regressions.add(name + " p999 " + result.getP999Ms() + "ms > baseline " + limits.getP999Ms() + "ms");
+            }
+            if (result.getErrorRate() > limits.getErrorRate()) {
+                regressions.add(name + " error rate " + result.getErrorRate() + " > baseline " + limits.getErrorRate());
+            }
+            if (result.getThroughput() < limits.getThroughput() * (1 - tolerance)) {
+                regressions.add(name + " throughput " + result.getThroughput() + "/s < baseline " + limits.getThroughput() + "/s");
+            }
+        });
+        return regressions;
+    }
+}
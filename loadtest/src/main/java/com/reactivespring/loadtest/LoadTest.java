@@ -0,0 +1,167 @@
+package com.reactivespring.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Boots the services, seeds them, drives the traffic mix for a warmup and a measured run, writes
+ * {@code report.json} and compares it with the baseline. Exits non-zero on a regression.
+ */
+@Slf4j
+public class LoadTest {
+
+    private static final int REVIEWS_PER_MOVIE = 5;
+
+    public static void main(String[] args) throws Exception {
+        var settings = LoadTestSettings.fromSystemProperties();
+        Files.createDirectories(settings.getOutputDir());
+        var objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+        LoadTestReport report;
+        try (var environment = ServiceEnvironment.start(settings)) {
+            var webClient = webClient();
+            if (settings.getTopology() == LoadTestSettings.Topology.FULL) {
+                seed(webClient, environment, settings.getMovieCount()).block();
+            }
+
+            var driver = new OpenModelDriver(webClient, settings.getRequestTimeout());
+            var operations = operations(webClient, environment, settings);
+
+            log.info("Warming up for {}", settings.getWarmup());
+            driver.run(operations, settings.getWarmup()).block();
+
+            log.info("Measuring for {}", settings.getDuration());
+            var stream = driver.subscribe(environment.getMoviesUrl() + "/stream",
+                    settings.getStreamSubscribers(), settings.getDuration());
+            var results = Mono.zip(driver.run(operations, settings.getDuration()), stream).block();
+
+            report = report(settings, results.getT1(), results.getT2());
+        }
+
+        var reportFile = settings.getOutputDir().resolve("report.json");
+        objectMapper.writeValue(reportFile.toFile(), report);
+        log.info("Report written to {}", reportFile);
+
+        if (settings.isWriteBaseline()) {
+            objectMapper.writeValue(settings.getBaseline().toFile(), Baseline.of(report));
+            log.info("Baseline written to {}", settings.getBaseline());
+            System.exit(0);
+        }
+        if (Files.notExists(settings.getBaseline())) {
+            // no reference numbers to check against: record this run for review, but don't let it pass the check
+            objectMapper.writeValue(settings.getBaseline().toFile(), Baseline.of(report));
+            log.error("No baseline for the {} topology, this run was recorded to {} : check it was taken on the " +
+                    "reference machine and commit it", settings.getTopology(), settings.getBaseline());
+            System.exit(1);
+        }
+
+        var regressions = objectMapper.readValue(settings.getBaseline().toFile(), Baseline.class).regressions(report);
+        regressions.forEach(regression -> log.error("Regression : {}", regression));
+        System.exit(regressions.isEmpty() ? 0 : 1);
+    }
+
+    private static WebClient webClient() {
+        // open-model load grows concurrency when the system slows down, so the driver must not queue on its own pool
+        var connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(2000)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+    }
+
+    private static Mono<Void> seed(WebClient webClient, ServiceEnvironment environment, int movieCount) {
+        var movieInfos = Flux.range(1, movieCount)
+                .<Map<String, Object>>map(i -> Map.of(
+                        "movieInfoId", String.valueOf(i),
+                        "name", "Movie " + i,
+                        "year", 2000 + i % 20,
+                        "cast", List.of("Actor " + i),
+                        "release_date", "2005-06-15"));
+        var reviews = Flux.range(0, movieCount * REVIEWS_PER_MOVIE)
+                .<Map<String, Object>>map(i -> Map.of(
+                        "movieInfoId", (long) (i % movieCount + 1),
+                        "comment", "Review " + i,
+                        "rating", (double) (i % 10)));
+
+        log.info("Seeding {} movie infos and {} reviews", movieCount, movieCount * REVIEWS_PER_MOVIE);
+        return bulkPost(webClient, environment.getMoviesInfoUrl() + "/bulk", movieInfos)
+                .then(bulkPost(webClient, environment.getReviewsUrl() + "/bulk", reviews));
+    }
+
+    private static Mono<Void> bulkPost(WebClient webClient, String url, Flux<Map<String, Object>> documents) {
+        return webClient.post()
+                .uri(url)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(documents, new ParameterizedTypeReference<Map<String, Object>>() {
+                })
+                .retrieve()
+                .bodyToFlux(String.class)
+                .then();
+    }
+
+    private static List<Operation> operations(WebClient webClient, ServiceEnvironment environment,
+                                              LoadTestSettings settings) {
+        var movieCount = settings.getMovieCount();
+        // writes need the real upstream services
+        var full = settings.getTopology() == LoadTestSettings.Topology.FULL;
+
+        return List.of(
+                new Operation("getMovie", settings.getGetMovieRate(), () -> webClient.get()
+                        .uri(environment.getMoviesUrl() + "/{id}", randomMovieId(movieCount))),
+                new Operation("getMovieSummary", settings.getGetMovieSummaryRate(), () -> webClient.get()
+                        .uri(environment.getMoviesUrl() + "/{id}?view=summary", randomMovieId(movieCount))),
+                new Operation("addReview", full ? settings.getAddReviewRate() : 0, () -> webClient.post()
+                        .uri(environment.getReviewsUrl())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of(
+                                "movieInfoId", Long.parseLong(randomMovieId(movieCount)),
+                                "comment", "Load test review",
+                                "rating", (double) ThreadLocalRandom.current().nextInt(10)))),
+                new Operation("patchMovieInfo", full ? settings.getPatchMovieInfoRate() : 0, () -> webClient.patch()
+                        .uri(environment.getMoviesInfoUrl() + "/{id}", randomMovieId(movieCount))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of("year", 1950 + ThreadLocalRandom.current().nextInt(70)))));
+    }
+
+    private static String randomMovieId(int movieCount) {
+        return String.valueOf(ThreadLocalRandom.current().nextInt(movieCount) + 1);
+    }
+
+    private static LoadTestReport report(LoadTestSettings settings, Map<String, OperationStats> stats,
+                                         LoadTestReport.StreamResult streams) {
+        var durationSeconds = settings.getDuration().toSeconds();
+        var operations = new LinkedHashMap<String, LoadTestReport.OperationResult>();
+        stats.forEach((name, operationStats) -> {
+            var result = operationStats.toResult(durationSeconds);
+            if (result.getRequests() > 0) {
+                operations.put(name, result);
+            }
+        });
+
+        var report = new LoadTestReport();
+        report.setTopology(settings.getTopology().name());
+        report.setDurationSeconds(durationSeconds);
+        report.setOperations(operations);
+        report.setStreams(streams);
+        return report;
+    }
+}
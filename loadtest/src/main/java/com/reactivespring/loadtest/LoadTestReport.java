@@ -0,0 +1,36 @@
+package com.reactivespring.loadtest;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+public class LoadTestReport {
+
+    private String topology;
+    private long durationSeconds;
+    private Map<String, OperationResult> operations = new LinkedHashMap<>();
+    private StreamResult streams;
+
+    @Data
+    public static class OperationResult {
+        private double targetRate;
+        private long requests;
+        private long errors;
+        private double errorRate;
+        // successful requests per second
+        private double throughput;
+        private double p50Ms;
+        private double p99Ms;
+        private double p999Ms;
+        private double maxMs;
+    }
+
+    @Data
+    public static class StreamResult {
+        private int subscribers;
+        private long events;
+        private long errors;
+    }
+}
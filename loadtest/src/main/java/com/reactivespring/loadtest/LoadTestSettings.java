@@ -0,0 +1,71 @@
+package com.reactivespring.loadtest;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Load test knobs, read from {@code loadtest.*} system properties (the Gradle task forwards -Ploadtest.* to them).
+ * Rates are arrivals per second: requests are issued on schedule whether or not earlier ones have completed.
+ */
+@Data
+public class LoadTestSettings {
+
+    public enum Topology {
+        // the three services against one embedded Mongo
+        FULL,
+        // movies-service alone against WireMock stand-ins of movies-info-service and movies-review-service
+        STUBBED
+    }
+
+    private Topology topology;
+    private Duration warmup;
+    private Duration duration;
+    private int movieCount;
+    private double getMovieRate;
+    private double getMovieSummaryRate;
+    private double addReviewRate;
+    private double patchMovieInfoRate;
+    private int streamSubscribers;
+    private Duration requestTimeout;
+    private Path moviesInfoJar;
+    private Path reviewsJar;
+    private Path moviesJar;
+    private Path outputDir;
+    private Path baseline;
+    private boolean writeBaseline;
+
+    public static LoadTestSettings fromSystemProperties() {
+        var settings = new LoadTestSettings();
+        settings.setTopology(Topology.valueOf(property("topology", "full").toUpperCase()));
+        settings.setWarmup(Duration.ofSeconds(Long.parseLong(property("warmupSeconds", "10"))));
+        settings.setDuration(Duration.ofSeconds(Long.parseLong(property("durationSeconds", "60"))));
+        settings.setMovieCount(Integer.parseInt(property("movieCount", "1000")));
+        settings.setGetMovieRate(Double.parseDouble(property("getMovieRate", "100")));
+        settings.setGetMovieSummaryRate(Double.parseDouble(property("getMovieSummaryRate", "50")));
+        settings.setAddReviewRate(Double.parseDouble(property("addReviewRate", "20")));
+        settings.setPatchMovieInfoRate(Double.parseDouble(property("patchMovieInfoRate", "5")));
+        settings.setStreamSubscribers(Integer.parseInt(property("streamSubscribers", "10")));
+        settings.setRequestTimeout(Duration.ofSeconds(Long.parseLong(property("requestTimeoutSeconds", "10"))));
+        settings.setMoviesInfoJar(Path.of(required("moviesInfoJar")));
+        settings.setReviewsJar(Path.of(required("reviewsJar")));
+        settings.setMoviesJar(Path.of(required("moviesJar")));
+        settings.setOutputDir(Path.of(property("outputDir", "build/loadtest")));
+        settings.setBaseline(Path.of(property("baseline", "baseline-" + settings.getTopology().name().toLowerCase() + ".json")));
+        settings.setWriteBaseline(Boolean.parseBoolean(property("writeBaseline", "false")));
+        return settings;
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static String required(String name) {
+        var value = System.getProperty("loadtest." + name);
+        if (value == null) {
+            throw new IllegalArgumentException("loadtest." + name + " must be set");
+        }
+        return value;
+    }
+}
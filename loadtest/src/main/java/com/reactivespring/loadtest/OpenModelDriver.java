@@ -0,0 +1,107 @@
+package com.reactivespring.loadtest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-model traffic: each operation is started on a fixed schedule regardless of how many earlier requests
+ * are still in flight, like independent users arriving, so a slow system sees growing concurrency instead of a
+ * politely reduced request rate.
+ */
+public class OpenModelDriver {
+
+    private final WebClient webClient;
+    private final Duration requestTimeout;
+
+    public OpenModelDriver(WebClient webClient, Duration requestTimeout) {
+        this.webClient = webClient;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Runs all operations concurrently for {@code duration}.
+     *
+     * @return the stats by operation name, complete once the last request has finished
+     */
+    public Mono<Map<String, OperationStats>> run(List<Operation> operations, Duration duration) {
+        var statsByName = new LinkedHashMap<String, OperationStats>();
+        operations.forEach(operation -> statsByName.put(operation.getName(),
+                new OperationStats(operation.getName(), operation.getRate())));
+
+        return Flux.fromIterable(operations)
+                .flatMap(operation -> run(operation, statsByName.get(operation.getName()), duration))
+                .then(Mono.just(statsByName));
+    }
+
+    private Mono<Void> run(Operation operation, OperationStats stats, Duration duration) {
+        if (operation.getRate() <= 0) {
+            return Mono.empty();
+        }
+        var periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / operation.getRate());
+        var requests = (long) (operation.getRate() * duration.toSeconds());
+
+        return Mono.defer(() -> {
+            var startNanos = System.nanoTime();
+
+            return Flux.interval(Duration.ofNanos(periodNanos))
+                    .take(requests)
+                    .flatMap(tick -> {
+                        // latency counts from when the request was due, including any time it waited to be sent
+                        var scheduledNanos = startNanos + (tick + 1) * periodNanos;
+                        return operation.getRequest().get()
+                                .exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode()))
+                                .timeout(requestTimeout)
+                                .doOnNext(status -> {
+                                    var latencyNanos = System.nanoTime() - scheduledNanos;
+                                    if (status < 400) {
+                                        stats.recordSuccess(latencyNanos);
+                                    } else {
+                                        stats.recordError(latencyNanos);
+                                    }
+                                })
+                                .onErrorResume(ex -> {
+                                    stats.recordError(System.nanoTime() - scheduledNanos);
+                                    return Mono.empty();
+                                });
+                    }, Integer.MAX_VALUE)
+                    .then();
+        });
+    }
+
+    /**
+     * Keeps {@code subscribers} NDJSON stream subscriptions open for {@code duration}, counting received events.
+     */
+    public Mono<LoadTestReport.StreamResult> subscribe(String url, int subscribers, Duration duration) {
+        var events = new AtomicLong();
+        var errors = new AtomicLong();
+
+        return Flux.range(0, subscribers)
+                .flatMap(subscriber -> webClient.get()
+                        .uri(url)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .retrieve()
+                        .bodyToFlux(String.class)
+                        .onErrorResume(ex -> {
+                            errors.incrementAndGet();
+                            return Flux.empty();
+                        }), Math.max(subscribers, 1))
+                .doOnNext(event -> events.incrementAndGet())
+                .take(duration)
+                .then(Mono.fromCallable(() -> {
+                    var result = new LoadTestReport.StreamResult();
+                    result.setSubscribers(subscribers);
+                    result.setEvents(events.get());
+                    result.setErrors(errors.get());
+                    return result;
+                }));
+    }
+}
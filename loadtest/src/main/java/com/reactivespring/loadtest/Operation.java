@@ -0,0 +1,20 @@
+package com.reactivespring.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.function.Supplier;
+
+/**
+ * One request type of the traffic mix, issued at a constant arrival rate (requests per second).
+ */
+@Getter
+@AllArgsConstructor
+public class Operation {
+
+    private final String name;
+    private final double rate;
+    // builds a new request on each call, e.g. with a random movie id
+    private final Supplier<WebClient.RequestHeadersSpec<?>> request;
+}
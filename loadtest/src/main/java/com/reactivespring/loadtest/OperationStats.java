@@ -0,0 +1,57 @@
+package com.reactivespring.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histogram and error count of one operation. Latencies are measured from the scheduled start of a
+ * request, not from when it was actually sent, so a stalled system cannot hide its own queueing delay.
+ */
+public class OperationStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final String name;
+    private final double targetRate;
+    private final ConcurrentHistogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final AtomicLong errors = new AtomicLong();
+
+    public OperationStats(String name, double targetRate) {
+        this.name = name;
+        this.targetRate = targetRate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordSuccess(long latencyNanos) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public void recordError(long latencyNanos) {
+        errors.incrementAndGet();
+        recordSuccess(latencyNanos);
+    }
+
+    public LoadTestReport.OperationResult toResult(double durationSeconds) {
+        var result = new LoadTestReport.OperationResult();
+        var requests = histogram.getTotalCount();
+        result.setTargetRate(targetRate);
+        result.setRequests(requests);
+        result.setErrors(errors.get());
+        result.setErrorRate(requests == 0 ? 0 : (double) errors.get() / requests);
+        result.setThroughput((requests - errors.get()) / durationSeconds);
+        result.setP50Ms(toMillis(histogram.getValueAtPercentile(50)));
+        result.setP99Ms(toMillis(histogram.getValueAtPercentile(99)));
+        result.setP999Ms(toMillis(histogram.getValueAtPercentile(99.9)));
+        result.setMaxMs(toMillis(histogram.getMaxValue()));
+        return result;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,229 @@
+package com.reactivespring.loadtest;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+/**
+ * Runs each service from its boot jar in a child process, so the three applications never share a classpath,
+ * against an embedded Mongo or WireMock stand-ins depending on the topology. Each service logs to
+ * {@code <outputDir>/<service>.log}.
+ */
+@Slf4j
+public class ServiceEnvironment implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(90);
+    private static final Duration STREAM_KEEP_ALIVE = Duration.ofSeconds(5);
+
+    private static final String MOVIE_INFO_JSON = "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005," +
+            "\"cast\":[\"Christian Bale\",\"Michael Cane\"],\"release_date\":\"2005-06-15\",\"version\":0}";
+    private static final String REVIEWS_JSON = "[{\"reviewId\":\"1\",\"movieInfoId\":1,\"comment\":\"Awesome Movie\",\"rating\":9.0,\"version\":0}," +
+            "{\"reviewId\":\"2\",\"movieInfoId\":1,\"comment\":\"Excellent Movie\",\"rating\":8.0,\"version\":0}]";
+    private static final String REVIEW_SUMMARY_JSON = "{\"movieInfoId\":1,\"count\":2,\"average\":8.5,\"histogram\":{\"8\":1,\"9\":1}}";
+
+    private final List<Process> processes = new ArrayList<>();
+    private MongodExecutable mongodExecutable;
+    private WireMockServer wireMockServer;
+    private String moviesUrl;
+    private String moviesInfoUrl;
+    private String reviewsUrl;
+
+    public static ServiceEnvironment start(LoadTestSettings settings) throws IOException, InterruptedException {
+        var environment = new ServiceEnvironment();
+        try {
+            if (settings.getTopology() == LoadTestSettings.Topology.FULL) {
+                environment.startFull(settings);
+            } else {
+                environment.startStubbed(settings);
+            }
+            return environment;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            environment.close();
+            throw e;
+        }
+    }
+
+    public String getMoviesUrl() {
+        return moviesUrl;
+    }
+
+    public String getMoviesInfoUrl() {
+        return moviesInfoUrl;
+    }
+
+    public String getReviewsUrl() {
+        return reviewsUrl;
+    }
+
+    private void startFull(LoadTestSettings settings) throws IOException, InterruptedException {
+        var mongoPort = freePort();
+        var mongodConfig = MongodConfig.builder()
+                .version(Version.Main.PRODUCTION)
+                .net(new Net(mongoPort, Network.localhostIsIPv6()))
+                .build();
+        mongodExecutable = MongodStarter.getDefaultInstance().prepare(mongodConfig);
+        mongodExecutable.start();
+        log.info("Embedded Mongo listening on {}", mongoPort);
+
+        // a standalone mongod has no change streams, so the services publish their own writes to their streams
+        var moviesInfoPort = freePort();
+        startService("movies-info-service", settings.getMoviesInfoJar(), settings.getOutputDir(),
+                "--server.port=" + moviesInfoPort,
+                "--spring.data.mongodb.host=localhost",
+                "--spring.data.mongodb.port=" + mongoPort,
+                "--spring.data.mongodb.database=movies-info",
+                "--stream.changeStreamEnabled=false");
+        var reviewsPort = freePort();
+        startService("movies-review-service", settings.getReviewsJar(), settings.getOutputDir(),
+                "--server.port=" + reviewsPort,
+                "--spring.data.mongodb.host=localhost",
+                "--spring.data.mongodb.port=" + mongoPort,
+                "--spring.data.mongodb.database=movies-review",
+                "--stream.changeStreamEnabled=false");
+        moviesInfoUrl = "http://localhost:" + moviesInfoPort + "/v1/movieinfos";
+        reviewsUrl = "http://localhost:" + reviewsPort + "/v1/reviews";
+        awaitReady(moviesInfoUrl + "?limit=1");
+        awaitReady("http://localhost:" + reviewsPort + "/v1/helloworld");
+
+        startMoviesService(settings, moviesInfoUrl, reviewsUrl);
+    }
+
+    /**
+     * A stream that sends one movie info and then stays open for {@code holdOpen}, writing a line of whitespace
+     * every {@link #STREAM_KEEP_ALIVE} so no idle timeout closes it. A stream that completes right away would make
+     * movies-service reconnect, and clear its movie info cache, every reconnect backoff during the measured run.
+     */
+    private static ResponseDefinitionBuilder openStream(Duration holdOpen) {
+        var line = MOVIE_INFO_JSON + "\n";
+        var keepAlives = (int) (holdOpen.toMillis() / STREAM_KEEP_ALIVE.toMillis()) + 1;
+        // WireMock writes the body in equal chunks, so each keep-alive is padded to the size of the first line
+        var body = line + (" ".repeat(line.length() - 1) + "\n").repeat(keepAlives);
+        return aResponse()
+                .withHeader("Content-Type", "application/x-ndjson")
+                .withBody(body)
+                .withChunkedDribbleDelay(keepAlives + 1, (int) STREAM_KEEP_ALIVE.toMillis() * (keepAlives + 1));
+    }
+
+    private void startStubbed(LoadTestSettings settings) throws IOException, InterruptedException {
+        wireMockServer = new WireMockServer(options().dynamicPort().containerThreads(200));
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(openStream(settings.getWarmup().plus(settings.getDuration()).plus(STARTUP_TIMEOUT))));
+        wireMockServer.stubFor(get(urlPathMatching("/v1/movieinfos/[0-9]+"))
+                .willReturn(okJson(MOVIE_INFO_JSON)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(okJson(REVIEWS_JSON)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/v1/reviews/summary"))
+                .willReturn(okJson(REVIEW_SUMMARY_JSON)));
+        log.info("WireMock stand-ins listening on {}", wireMockServer.port());
+
+        var standInUrl = "http://localhost:" + wireMockServer.port();
+        startMoviesService(settings, standInUrl + "/v1/movieinfos", standInUrl + "/v1/reviews");
+    }
+
+    private void startMoviesService(LoadTestSettings settings, String moviesInfoUrl, String reviewsUrl)
+            throws IOException, InterruptedException {
+        var moviesPort = freePort();
+        startService("movies-service", settings.getMoviesJar(), settings.getOutputDir(),
+                "--server.port=" + moviesPort,
+                "--restClient.moviesInfoUrl=" + moviesInfoUrl,
+                "--restClient.reviewsUrl=" + reviewsUrl);
+        moviesUrl = "http://localhost:" + moviesPort + "/v1/movies";
+        awaitReady("http://localhost:" + moviesPort + "/actuator/health");
+    }
+
+    private void startService(String name, Path jar, Path outputDir, String... args) throws IOException {
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(List.of(args));
+        // request-level logging would measure the disk, not the service
+        command.add("--logging.level.root=info");
+
+        var process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(outputDir.resolve(name + ".log").toFile())
+                .start();
+        processes.add(process);
+        log.info("Started {} : {}", name, String.join(" ", args));
+    }
+
+    private void awaitReady(String url) throws InterruptedException {
+        var httpClient = HttpClient.newHttpClient();
+        var request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(2)).build();
+        var deadline = Instant.now().plus(STARTUP_TIMEOUT);
+
+        while (Instant.now().isBefore(deadline)) {
+            if (processes.stream().anyMatch(process -> !process.isAlive())) {
+                throw new IllegalStateException("A service exited during startup, see the service logs");
+            }
+            try {
+                var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() / 100 == 2) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(url + " not ready after " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (var process : processes) {
+            process.destroy();
+        }
+        for (var process : processes) {
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (wireMockServer != null) {
+            wireMockServer.stop();
+        }
+        if (mongodExecutable != null) {
+            mongodExecutable.stop();
+        }
+    }
+}
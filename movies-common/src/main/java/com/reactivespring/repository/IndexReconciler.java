@@ -0,0 +1,101 @@
+package com.reactivespring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Creates the indexes declared with {@code @Indexed} / {@code @CompoundIndex} on the given documents.
+ * Automatic index creation is off by default in Spring Data MongoDB, so this runs once the application is ready,
+ * builds missing indexes in the background and logs indexes that are missing or have not been used since the
+ * server started.
+ */
+@Slf4j
+public class IndexReconciler {
+
+    private static final Set<String> DEFAULT_INDEXES = Set.of("_id_");
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+    private List<Class<?>> documents;
+    private Disposable reconciliation;
+
+    public IndexReconciler(ReactiveMongoTemplate reactiveMongoTemplate, List<Class<?>> documents) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.documents = documents;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconciliation = reconcile()
+                .subscribe(null, ex -> log.error("Index reconciliation failed : {}", ex.getMessage(), ex));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconciliation != null) {
+            reconciliation.dispose();
+        }
+    }
+
+    public Mono<Void> reconcile() {
+        var indexResolver = new MongoPersistentEntityIndexResolver(reactiveMongoTemplate.getConverter().getMappingContext());
+
+        return Flux.fromIterable(documents)
+                .concatMap(type -> {
+                    var declared = StreamSupport.stream(indexResolver.resolveIndexFor(type).spliterator(), false)
+                            .collect(Collectors.toList());
+                    return ensureIndexes(type, declared)
+                            .then(logUnusedIndexes(reactiveMongoTemplate.getCollectionName(type)));
+                })
+                .then();
+    }
+
+    private Mono<Void> ensureIndexes(Class<?> type, List<? extends IndexDefinition> declared) {
+        var indexOps = reactiveMongoTemplate.indexOps(type);
+
+        return indexOps.getIndexInfo()
+                .map(IndexInfo::getName)
+                .collect(Collectors.toSet())
+                .flatMapMany(existing -> Flux.fromIterable(declared)
+                        .filter(index -> !existing.contains(indexName(index))))
+                .concatMap(index -> {
+                    log.warn("Missing index {} on {}, creating it : {}", indexName(index), type.getSimpleName(), index.getIndexKeys());
+                    return indexOps.ensureIndex(index);
+                })
+                .then();
+    }
+
+    private Mono<Void> logUnusedIndexes(String collectionName) {
+        var indexStats = List.of(new Document("$indexStats", new Document()));
+
+        return reactiveMongoTemplate.getCollection(collectionName)
+                .flatMapMany(collection -> collection.aggregate(indexStats))
+                .filter(stats -> !DEFAULT_INDEXES.contains(stats.getString("name")))
+                .doOnNext(stats -> {
+                    var accesses = stats.get("accesses", Document.class);
+                    if (accesses != null && ((Number) accesses.get("ops")).longValue() == 0) {
+                        log.info("Index {} on {} has not been used since {}", stats.getString("name"), collectionName,
+                                accesses.get("since"));
+                    }
+                })
+                .then();
+    }
+
+    private static String indexName(IndexDefinition index) {
+        return index.getIndexOptions().getString("name");
+    }
+}
@@ -0,0 +1,88 @@
+package com.reactivespring.repository;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import static com.reactivespring.tracing.Spans.childSpan;
+
+/**
+ * Wraps every repository call, custom fragments included, in a span started on subscription, so each Mongo
+ * round trip shows up under the request span that issued it. The reactive Mongo driver does not hand the Reactor
+ * context to its command listeners, which is why the spans are opened here rather than per driver command.
+ * Shared by the Mongo backed services, which declare {@link #postProcessor} as a static bean.
+ */
+public class RepositoryTracing {
+
+    private RepositoryTracing() {
+    }
+
+    public static BeanPostProcessor postProcessor(ObjectProvider<Tracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                // customizers must be registered before the factory bean creates the repository
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new TracingInterceptor(tracer,
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static class TracingInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<Tracer> tracer;
+        private final String repositoryName;
+
+        TracingInterceptor(ObjectProvider<Tracer> tracer, String repositoryName) {
+            this.tracer = tracer;
+            this.repositoryName = repositoryName;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            var result = invocation.proceed();
+            var currentTracer = tracer.getIfAvailable();
+            if (currentTracer == null) {
+                return result;
+            }
+
+            var operation = invocation.getMethod().getName();
+            if (result instanceof Mono) {
+                var mono = (Mono<?>) result;
+                return Mono.deferContextual(context -> {
+                    var span = startSpan(currentTracer, context, operation);
+                    return mono.doOnError(span::error).doFinally(signalType -> span.end());
+                });
+            }
+            if (result instanceof Flux) {
+                var flux = (Flux<?>) result;
+                return Flux.deferContextual(context -> {
+                    var span = startSpan(currentTracer, context, operation);
+                    return flux.doOnError(span::error).doFinally(signalType -> span.end());
+                });
+            }
+            return result;
+        }
+
+        private Span startSpan(Tracer currentTracer, ContextView context, String operation) {
+            return childSpan(currentTracer, context)
+                    .name(repositoryName + "." + operation)
+                    .remoteServiceName("mongodb")
+                    .tag("db.system", "mongodb")
+                    .tag("db.operation", operation)
+                    .start();
+        }
+    }
+}
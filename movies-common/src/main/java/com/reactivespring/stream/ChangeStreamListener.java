@@ -0,0 +1,123 @@
+package com.reactivespring.stream;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Feeds an {@link EventBroadcaster} from a collection's change stream, so every replica sees inserts, updates and
+ * deletes no matter which node handled the write. Deletes are published as the tombstone built from the deleted id.
+ * The resume token is persisted periodically, so a restart continues from the last processed change instead of
+ * missing or re-scanning events. Services wire one per stream by extending it as a component.
+ */
+@Slf4j
+public class ChangeStreamListener<T> {
+
+    private String streamName;
+    private Class<T> documentType;
+    private Function<String, T> tombstone;
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+    private ResumeTokenStore resumeTokenStore;
+    private EventBroadcaster<T> eventBroadcaster;
+    private StreamProperties streamProperties;
+    private volatile Instant startAt = Instant.now();
+    private Disposable subscription;
+
+    /**
+     * @param streamName key of the stream's resume token
+     * @param tombstone  builds the event published for a delete from the deleted document's id
+     */
+    public ChangeStreamListener(String streamName, Class<T> documentType, Function<String, T> tombstone,
+                                ReactiveMongoTemplate reactiveMongoTemplate, ResumeTokenStore resumeTokenStore,
+                                EventBroadcaster<T> eventBroadcaster, StreamProperties streamProperties) {
+        this.streamName = streamName;
+        this.documentType = documentType;
+        this.tombstone = tombstone;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.resumeTokenStore = resumeTokenStore;
+        this.eventBroadcaster = eventBroadcaster;
+        this.streamProperties = streamProperties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        if (!streamProperties.isChangeStreamEnabled()) {
+            return;
+        }
+
+        subscription = Flux.defer(this::changeStream)
+                .doOnNext(event -> toEvent(event).ifPresent(eventBroadcaster::emit))
+                .map(ChangeStreamEvent::getResumeToken)
+                .sample(streamProperties.getResumeTokenSaveInterval())
+                .concatMap(resumeToken -> resumeTokenStore.save(streamName, resumeToken))
+                .onErrorResume(ChangeStreamListener::isHistoryLost, ex -> {
+                    log.warn("Resume token for {} is no longer in the oplog, restarting from now", streamName);
+                    startAt = Instant.now();
+                    return resumeTokenStore.delete(streamName).then(Mono.error(ex));
+                })
+                .doOnError(ex -> log.warn("Change stream {} failed : {}", streamName, ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, streamProperties.getMinReconnectBackoff())
+                        .maxBackoff(streamProperties.getMaxReconnectBackoff())
+                        .transientErrors(true))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private Flux<ChangeStreamEvent<T>> changeStream() {
+        var collectionName = reactiveMongoTemplate.getCollectionName(documentType);
+
+        return resumeTokenStore.load(streamName)
+                .map(resumeToken -> ChangeStreamOptions.builder().resumeAfter(resumeToken))
+                .defaultIfEmpty(ChangeStreamOptions.builder().resumeAt(startAt))
+                .flatMapMany(options -> reactiveMongoTemplate.changeStream(collectionName,
+                        options.returnFullDocumentOnUpdate().build(), documentType));
+    }
+
+    private Optional<T> toEvent(ChangeStreamEvent<T> event) {
+        var operationType = event.getOperationType();
+        if (operationType == OperationType.DELETE) {
+            return Optional.of(tombstone.apply(toId(event.getRaw().getDocumentKey().get("_id"))));
+        }
+        if (operationType == OperationType.INSERT || operationType == OperationType.UPDATE
+                || operationType == OperationType.REPLACE) {
+            return Optional.ofNullable(event.getBody());
+        }
+        return Optional.empty();
+    }
+
+    private static String toId(BsonValue id) {
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    private static boolean isHistoryLost(Throwable ex) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException) {
+                var errorCode = ((MongoCommandException) cause).getErrorCode();
+                // ChangeStreamHistoryLost, ChangeStreamFatalError
+                return errorCode == 286 || errorCode == 280;
+            }
+        }
+        return false;
+    }
+}
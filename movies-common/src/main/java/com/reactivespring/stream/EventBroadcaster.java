@@ -0,0 +1,116 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broadcasts events to any number of stream subscribers.
+ * Concurrent emitters are serialized instead of failing with FAIL_NON_SERIALIZED, new subscribers receive the
+ * configured replay window, and every subscriber drains into its own bounded buffer.
+ * As a bean it publishes its counters as stream.events and stream.subscribers meters tagged with its name.
+ */
+@Slf4j
+public class EventBroadcaster<T> implements MeterBinder {
+
+    private final String name;
+    private final Sinks.Many<T> sink;
+    private final StreamProperties streamProperties;
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong emitFailures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EventBroadcaster(String name, StreamProperties streamProperties) {
+        this.name = name;
+        this.streamProperties = streamProperties;
+        this.sink = createSink(streamProperties);
+    }
+
+    public void emit(T event) {
+        Sinks.EmitResult result;
+        // another thread is emitting right now, spin until it is done rather than dropping the event
+        while ((result = sink.tryEmitNext(event)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+
+        if (result.isSuccess() || result == Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            emitted.incrementAndGet();
+        } else {
+            emitFailures.incrementAndGet();
+            log.warn("Failed to emit {} event : {}", name, result);
+        }
+    }
+
+    public Flux<T> asFlux() {
+        return sink.asFlux()
+                .onBackpressureBuffer(streamProperties.getSubscriberBufferSize(),
+                        droppedEvent -> dropped.incrementAndGet(),
+                        toBufferOverflowStrategy(streamProperties.getOverflowStrategy()));
+    }
+
+    public long getEmitted() {
+        return emitted.get();
+    }
+
+    public long getEmitFailures() {
+        return emitFailures.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int currentSubscriberCount() {
+        return sink.currentSubscriberCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("stream.events", emitted, AtomicLong::get)
+                .tag("stream", name)
+                .tag("result", "emitted")
+                .register(registry);
+        FunctionCounter.builder("stream.events", emitFailures, AtomicLong::get)
+                .tag("stream", name)
+                .tag("result", "failed")
+                .register(registry);
+        FunctionCounter.builder("stream.events", dropped, AtomicLong::get)
+                .tag("stream", name)
+                .tag("result", "dropped")
+                .register(registry);
+        Gauge.builder("stream.subscribers", this, EventBroadcaster::currentSubscriberCount)
+                .tag("stream", name)
+                .register(registry);
+    }
+
+    private static <T> Sinks.Many<T> createSink(StreamProperties streamProperties) {
+        var historySize = streamProperties.getReplayHistorySize();
+        var maxAge = streamProperties.getReplayMaxAge();
+
+        if (historySize <= 0) {
+            return Sinks.many().multicast().directBestEffort();
+        }
+        if (maxAge == null || maxAge.isZero()) {
+            return Sinks.many().replay().limit(historySize);
+        }
+        return Sinks.many().replay().limit(historySize, maxAge);
+    }
+
+    private static BufferOverflowStrategy toBufferOverflowStrategy(StreamProperties.OverflowStrategy strategy) {
+        switch (strategy) {
+            case DROP_LATEST:
+                return BufferOverflowStrategy.DROP_LATEST;
+            case DISCONNECT:
+                return BufferOverflowStrategy.ERROR;
+            default:
+                return BufferOverflowStrategy.DROP_OLDEST;
+        }
+    }
+}
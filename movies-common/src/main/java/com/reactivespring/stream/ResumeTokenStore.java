@@ -0,0 +1,56 @@
+package com.reactivespring.stream;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * Persists the last processed change stream resume token per stream and instance ({@code stream.instanceId}),
+ * so a restarted node continues where it left off without sharing a resume point with the other replicas.
+ */
+public class ResumeTokenStore {
+
+    private static final String COLLECTION = "resumeTokens";
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+    private StreamProperties streamProperties;
+
+    public ResumeTokenStore(ReactiveMongoTemplate reactiveMongoTemplate, StreamProperties streamProperties) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.streamProperties = streamProperties;
+    }
+
+    public Mono<BsonValue> load(String streamName) {
+        var id = documentId(streamName);
+        return reactiveMongoTemplate.getCollection(COLLECTION)
+                .flatMap(collection -> Mono.from(collection.find(Filters.eq("_id", id)).first()))
+                .flatMap(document -> Mono.justOrEmpty(document.get("token", Document.class)))
+                .map(token -> token.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()));
+    }
+
+    public Mono<Void> save(String streamName, BsonValue resumeToken) {
+        var id = documentId(streamName);
+        var document = new Document("_id", id).append("token", resumeToken);
+
+        return reactiveMongoTemplate.getCollection(COLLECTION)
+                .flatMap(collection -> Mono.from(collection.replaceOne(Filters.eq("_id", id), document,
+                        new ReplaceOptions().upsert(true))))
+                .then();
+    }
+
+    public Mono<Void> delete(String streamName) {
+        var id = documentId(streamName);
+        return reactiveMongoTemplate.getCollection(COLLECTION)
+                .flatMap(collection -> Mono.from(collection.deleteOne(Filters.eq("_id", id))))
+                .then();
+    }
+
+    private String documentId(String streamName) {
+        return streamName + ":" + streamProperties.getInstanceId();
+    }
+}
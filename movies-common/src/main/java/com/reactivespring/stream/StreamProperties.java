@@ -0,0 +1,32 @@
+package com.reactivespring.stream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stream")
+public class StreamProperties {
+
+    // events replayed to a new subscriber, 0 disables replay
+    private int replayHistorySize = 1;
+    // how long an event stays replayable, 0 means until it is pushed out of the history
+    private Duration replayMaxAge = Duration.ZERO;
+    private int subscriberBufferSize = 256;
+    private OverflowStrategy overflowStrategy = OverflowStrategy.DROP_OLDEST;
+    // feed the stream from Mongo change streams instead of this node's own writes; needs a replica set and a
+    // database other than "local", so it is enabled per environment
+    private boolean changeStreamEnabled = false;
+    // keys this node's resume tokens, so replicas never overwrite each other's resume point; keep it stable
+    // across restarts of the same node (e.g. a StatefulSet pod name)
+    private String instanceId = "default";
+    // how often the last processed resume token is persisted
+    private Duration resumeTokenSaveInterval = Duration.ofSeconds(1);
+    private Duration minReconnectBackoff = Duration.ofSeconds(1);
+    private Duration maxReconnectBackoff = Duration.ofSeconds(30);
+
+    public enum OverflowStrategy {
+        DROP_OLDEST, DROP_LATEST, DISCONNECT
+    }
+}
@@ -0,0 +1,108 @@
+package com.reactivespring.tracing;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Per-route replacement for {@code .log()}: every Reactive Streams signal of a sampled request is logged to the
+ * {@code reactive.signals.<route>} category at INFO. Routes are off until switched on, with a sample rate, through
+ * the signaltracing actuator endpoint, so an untraced request only pays for one map lookup on subscription.
+ * Routes are declared up front with {@link #route}; enabling or disabling any other name is rejected.
+ */
+@Component
+public class SignalTracing {
+
+    public static final String CATEGORY_PREFIX = "reactive.signals.";
+
+    private static final SignalType[] SIGNALS = {SignalType.ON_SUBSCRIBE, SignalType.REQUEST, SignalType.ON_NEXT,
+            SignalType.ON_ERROR, SignalType.ON_COMPLETE, SignalType.CANCEL};
+
+    private final Set<String> routes = ConcurrentHashMap.newKeySet();
+    private final Map<String, Double> sampleRates = new ConcurrentHashMap<>();
+
+    /**
+     * Declares a route. Call it once, when the bean serving the route is created, so that the route can be switched
+     * on before its first request and any other name can be rejected.
+     */
+    public Route route(String name) {
+        routes.add(name);
+        return new Route(name);
+    }
+
+    /**
+     * @param sampleRate fraction of the route's requests to trace, in (0, 1]
+     */
+    public void enable(String route, double sampleRate) {
+        checkRoute(route);
+        if (!(sampleRate > 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("sampleRate must be in (0, 1] : " + sampleRate);
+        }
+        sampleRates.put(route, sampleRate);
+    }
+
+    public void disable(String route) {
+        checkRoute(route);
+        sampleRates.remove(route);
+    }
+
+    /**
+     * @return the sample rate of every declared route, 0 for the routes that are off
+     */
+    public Map<String, Double> sampleRates() {
+        var rates = new TreeMap<String, Double>();
+        routes.forEach(route -> rates.put(route, 0.0));
+        rates.putAll(sampleRates);
+        return rates;
+    }
+
+    private void checkRoute(String route) {
+        if (!routes.contains(route)) {
+            throw new IllegalArgumentException("Unknown route " + route + ", known routes : " + new TreeSet<>(routes));
+        }
+    }
+
+    private boolean isSampled(String route) {
+        var sampleRate = sampleRates.get(route);
+        if (sampleRate == null) {
+            return false;
+        }
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+        // the category's level still applies, so a route can be silenced through the loggers endpoint as well
+        return LoggerFactory.getLogger(CATEGORY_PREFIX + route).isInfoEnabled();
+    }
+
+    public class Route {
+
+        private final String name;
+
+        private Route(String name) {
+            this.name = name;
+        }
+
+        public <T> Function<Mono<T>, Mono<T>> mono() {
+            return mono -> Mono.defer(() -> isSampled(name)
+                    ? mono.log(CATEGORY_PREFIX + name, Level.INFO, SIGNALS)
+                    : mono);
+        }
+
+        public <T> Function<Flux<T>, Flux<T>> flux() {
+            return flux -> Flux.defer(() -> isSampled(name)
+                    ? flux.log(CATEGORY_PREFIX + name, Level.INFO, SIGNALS)
+                    : flux);
+        }
+    }
+}
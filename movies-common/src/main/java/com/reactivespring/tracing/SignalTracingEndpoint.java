@@ -0,0 +1,50 @@
+package com.reactivespring.tracing;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/signaltracing} lists the routes and their sample rates,
+ * {@code POST /actuator/signaltracing/{route}} with {@code {"sampleRate": 0.01}} switches a route on and
+ * {@code DELETE /actuator/signaltracing/{route}} switches it off again.
+ */
+@Component
+@Endpoint(id = "signaltracing")
+public class SignalTracingEndpoint {
+
+    private final SignalTracing signalTracing;
+
+    public SignalTracingEndpoint(SignalTracing signalTracing) {
+        this.signalTracing = signalTracing;
+    }
+
+    @ReadOperation
+    public Map<String, Double> sampleRates() {
+        return signalTracing.sampleRates();
+    }
+
+    @WriteOperation
+    public void enable(@Selector String route, double sampleRate) {
+        try {
+            signalTracing.enable(route, sampleRate);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    @DeleteOperation
+    public void disable(@Selector String route) {
+        try {
+            signalTracing.disable(route);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.reactivespring.tracing;
+
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.Tracer;
+import reactor.util.context.ContextView;
+
+/**
+ * Helpers for spans opened in reactive code rather than by Sleuth's instrumentation.
+ */
+public class Spans {
+
+    private Spans() {
+    }
+
+    /**
+     * Starts building a child of the subscriber's request span. With decorate_queues the request span is only in
+     * scope on the threads Sleuth hands it to, while the web filter always keeps it in the Reactor context, so the
+     * context is asked first and the current span is the fallback.
+     */
+    public static Span.Builder childSpan(Tracer tracer, ContextView context) {
+        TraceContext parent = context.getOrDefault(TraceContext.class, null);
+        if (parent == null && tracer.currentSpan() != null) {
+            parent = tracer.currentSpan().context();
+        }
+        return parent == null ? tracer.spanBuilder() : tracer.spanBuilder().setParent(parent);
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactivespring.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Strong entity tags derived from document versions.
+ */
+public class ETags {
+
+    /**
+     * @return {@code "<version>"}, suffixed with the projected fields (in any order) since each
+     * projection is its own representation, or null when the document carries no version
+     */
+    public static String of(Long version, Set<String> fields) {
+        if (version == null) {
+            return null;
+        }
+        if (fields.isEmpty()) {
+            return "\"" + version + "\"";
+        }
+        return "\"" + version + "-" + String.join(".", new TreeSet<>(fields)) + "\"";
+    }
+
+    /**
+     * Tag for a representation built from several parts (e.g. id:version pairs), stable for equal parts.
+     */
+    public static String digest(List<String> parts) {
+        try {
+            var messageDigest = MessageDigest.getInstance("SHA-256");
+            for (var part : parts) {
+                messageDigest.update(part.getBytes(StandardCharsets.UTF_8));
+                messageDigest.update((byte) '\n');
+            }
+            var hash = Base64.getUrlEncoder().withoutPadding().encodeToString(messageDigest.digest());
+            return "\"" + hash.substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the version back from an If-Match header holding a single unprojected tag produced by {@link #of}.
+     *
+     * @return null when the header is absent
+     * @throws IllegalArgumentException if the header is not such a tag
+     */
+    public static Long version(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        var trimmed = ifMatch.trim();
+        if (trimmed.length() < 3 || !trimmed.startsWith("\"") || !trimmed.endsWith("\"")) {
+            throw new IllegalArgumentException("not a version tag " + ifMatch);
+        }
+        try {
+            return Long.valueOf(trimmed.substring(1, trimmed.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a version tag " + ifMatch);
+        }
+    }
+
+    /**
+     * If-None-Match uses the weak comparison, so a W/ prefix on the client tag is ignored.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (var candidate : ifNoneMatch.split(",")) {
+            var trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.reactivespring.util;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Parses the comma separated {@code fields} query parameter against a whitelist of projectable fields.
+ */
+public class FieldProjection {
+
+    /**
+     * @return the requested fields, empty when the parameter is absent (no projection)
+     * @throws IllegalArgumentException if a field is not in {@code allowedFields}
+     */
+    public static Set<String> parse(String fields, Set<String> allowedFields) {
+        if (fields == null || fields.isBlank()) {
+            return Set.of();
+        }
+
+        var projection = new LinkedHashSet<String>();
+        for (var field : fields.split(",")) {
+            var trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!allowedFields.contains(trimmed)) {
+                throw new IllegalArgumentException("unknown field " + trimmed);
+            }
+            projection.add(trimmed);
+        }
+        return Collections.unmodifiableSet(projection);
+    }
+}
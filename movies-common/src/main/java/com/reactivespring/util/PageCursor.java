@@ -0,0 +1,25 @@
+package com.reactivespring.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor: the _id of the last document of the previous page, base64url encoded.
+ */
+public class PageCursor {
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode(String)}
+     */
+    public static String decode(String cursor) {
+        var lastId = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (lastId.isBlank()) {
+            throw new IllegalArgumentException("empty cursor");
+        }
+        return lastId;
+    }
+}
@@ -0,0 +1,92 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventBroadcasterTest {
+
+    @Test
+    void emit_serializesConcurrentEmitters() {
+        var streamProperties = new StreamProperties();
+        streamProperties.setSubscriberBufferSize(10_000);
+        var broadcaster = new EventBroadcaster<Integer>("test", streamProperties);
+
+        var received = broadcaster.asFlux().take(1000).count();
+
+        StepVerifier.create(received)
+                .then(() -> Flux.range(0, 1000)
+                        .parallel(8)
+                        .runOn(Schedulers.parallel())
+                        .doOnNext(broadcaster::emit)
+                        .sequential()
+                        .blockLast())
+                .expectNext(1000L)
+                .verifyComplete();
+
+        assertEquals(0, broadcaster.getEmitFailures());
+    }
+
+    @Test
+    void asFlux_replaysHistoryToNewSubscribers() {
+        var streamProperties = new StreamProperties();
+        streamProperties.setReplayHistorySize(2);
+        var broadcaster = new EventBroadcaster<Integer>("test", streamProperties);
+
+        broadcaster.emit(1);
+        broadcaster.emit(2);
+        broadcaster.emit(3);
+
+        StepVerifier.create(broadcaster.asFlux())
+                .expectNext(2, 3)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void asFlux_dropsForSlowSubscriber() {
+        var streamProperties = new StreamProperties();
+        streamProperties.setReplayHistorySize(0);
+        streamProperties.setSubscriberBufferSize(2);
+        var broadcaster = new EventBroadcaster<Integer>("test", streamProperties);
+
+        StepVerifier.create(broadcaster.asFlux(), 0)
+                .then(() -> {
+                    broadcaster.emit(1);
+                    broadcaster.emit(2);
+                    broadcaster.emit(3);
+                })
+                .thenRequest(2)
+                .expectNext(2, 3)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, broadcaster.getDropped());
+    }
+
+    @Test
+    void bindTo_publishesEventCountersAndSubscriberGauge() {
+        var streamProperties = new StreamProperties();
+        streamProperties.setReplayHistorySize(0);
+        var broadcaster = new EventBroadcaster<Integer>("test", streamProperties);
+        var meterRegistry = new SimpleMeterRegistry();
+        broadcaster.bindTo(meterRegistry);
+
+        StepVerifier.create(broadcaster.asFlux())
+                .then(() -> broadcaster.emit(1))
+                .expectNext(1)
+                .then(() -> assertEquals(1.0, meterRegistry.get("stream.subscribers").tag("stream", "test").gauge().value()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1.0, meterRegistry.get("stream.events").tags("stream", "test", "result", "emitted")
+                .functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("stream.subscribers").tag("stream", "test").gauge().value());
+    }
+}
@@ -0,0 +1,89 @@
+package com.reactivespring.tracing;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignalTracingTest {
+
+    private final SignalTracing signalTracing = new SignalTracing();
+    private final SignalTracing.Route route = signalTracing.route("test");
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SignalTracing.CATEGORY_PREFIX + "test");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void flux_logsNothingWhileRouteIsOff() {
+        //when
+        var flux = Flux.just(1, 2, 3).transform(route.flux());
+
+        //then
+        StepVerifier.create(flux)
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+        assertTrue(appender.list.isEmpty());
+        assertEquals(Map.of("test", 0.0), signalTracing.sampleRates());
+    }
+
+    @Test
+    void flux_logsEverySignalOnceRouteIsOn() {
+        //given
+        var flux = Flux.just(1, 2, 3).transform(route.flux());
+        signalTracing.enable("test", 1.0);
+
+        //when
+        StepVerifier.create(flux)
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+
+        //then
+        // onSubscribe, request, three onNext and onComplete
+        assertEquals(6, appender.list.size());
+        assertEquals(Map.of("test", 1.0), signalTracing.sampleRates());
+
+        //when
+        appender.list.clear();
+        signalTracing.disable("test");
+        StepVerifier.create(flux)
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+
+        //then
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void enable_rejectsUnknownRoute() {
+        assertThrows(IllegalArgumentException.class, () -> signalTracing.enable("unknown", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> signalTracing.disable("unknown"));
+        assertEquals(Map.of("test", 0.0), signalTracing.sampleRates());
+    }
+
+    @Test
+    void enable_rejectsInvalidSampleRate() {
+        assertThrows(IllegalArgumentException.class, () -> signalTracing.enable("test", 0));
+        assertThrows(IllegalArgumentException.class, () -> signalTracing.enable("test", 1.5));
+    }
+}
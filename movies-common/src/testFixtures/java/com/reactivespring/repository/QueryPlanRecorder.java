@@ -0,0 +1,63 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Records the find commands the Mongo client sends, so tests can explain the query a repository method really
+ * issues instead of a hand-built copy of it. Import it into a Mongo test slice to register it with the client.
+ */
+public class QueryPlanRecorder implements MongoClientSettingsBuilderCustomizer, CommandListener {
+
+    private final Deque<BsonDocument> findCommands = new ConcurrentLinkedDeque<>();
+
+    @Override
+    public void customize(MongoClientSettings.Builder settings) {
+        settings.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (event.getCommandName().equals("find")) {
+            findCommands.add(event.getCommand().clone());
+        }
+    }
+
+    /**
+     * Runs the query and returns the winning plan of the last find command it sent, as json.
+     */
+    public String winningPlan(ReactiveMongoTemplate reactiveMongoTemplate, Publisher<?> query) {
+        findCommands.clear();
+        Flux.from(query).blockLast();
+        var sent = findCommands.peekLast();
+        if (sent == null) {
+            throw new AssertionError("The query sent no find command");
+        }
+
+        // driver-level fields such as $db and lsid are not part of the query and are rejected inside explain
+        var find = new BsonDocument();
+        sent.forEach((key, value) -> {
+            if (!key.startsWith("$") && !key.equals("lsid")) {
+                find.append(key, value);
+            }
+        });
+        var explain = new BsonDocument("explain", find).append("verbosity", new BsonString("queryPlanner"));
+
+        return reactiveMongoTemplate.getMongoDatabase()
+                .flatMap(database -> Mono.from(database.runCommand(explain)))
+                .map(result -> result.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson())
+                .block();
+    }
+}
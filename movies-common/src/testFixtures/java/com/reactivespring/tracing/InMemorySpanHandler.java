@@ -0,0 +1,61 @@
+package com.reactivespring.tracing;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Collects finished spans in memory, so tests can assert span trees without a collector.
+ * Register it as a bean and set spring.sleuth.sampler.probability=1.0.
+ */
+public class InMemorySpanHandler extends SpanHandler {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final Queue<MutableSpan> spans = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause == Cause.FINISHED) {
+            spans.add(span);
+        }
+        return true;
+    }
+
+    public void clear() {
+        spans.clear();
+    }
+
+    public List<MutableSpan> spans(String traceId) {
+        return spans.stream()
+                .filter(span -> traceId.equals(span.traceId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Waits for a matching span: the server span of a request only finishes after its response has been written.
+     */
+    public MutableSpan await(Predicate<MutableSpan> predicate) {
+        var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            var match = spans.stream().filter(predicate).findFirst();
+            if (match.isPresent()) {
+                return match.get();
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new AssertionError("No matching span within " + TIMEOUT + " in " + spans);
+    }
+}
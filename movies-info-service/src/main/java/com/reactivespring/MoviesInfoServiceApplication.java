@@ -2,11 +2,14 @@ package com.reactivespring;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import reactor.core.scheduler.Schedulers;
 
 @SpringBootApplication
 public class MoviesInfoServiceApplication {
 
 	public static void main(String[] args) {
+		// executor metrics of the Reactor schedulers, recorded in the global registry that Boot adds its registry to
+		Schedulers.enableMetrics();
 		SpringApplication.run(MoviesInfoServiceApplication.class, args);
 	}
 
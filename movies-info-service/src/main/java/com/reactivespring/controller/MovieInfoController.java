@@ -1,72 +1,250 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoDataException;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.stream.EventBroadcaster;
+import com.reactivespring.stream.StreamProperties;
+import com.reactivespring.tracing.SignalTracing;
+import com.reactivespring.util.ETags;
+import com.reactivespring.util.FieldProjection;
+import com.reactivespring.util.PageCursor;
+import com.reactivespring.validator.MovieInfoValidator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
-import javax.validation.Valid;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/v1")
 @Slf4j
 public class MovieInfoController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final Set<String> PROJECTABLE_FIELDS = Set.of("movieInfoId", "name", "year", "cast", "release_date", "version");
+
     private MovieInfoService movieInfoService;
+    private EventBroadcaster<MovieInfo> movieInfoEventBroadcaster;
+    private StreamProperties streamProperties;
+    private SignalTracing.Route getAllMovieInfosTracing;
+    private SignalTracing.Route getMovieInfoByIdTracing;
+    private SignalTracing.Route updateMovieInfoTracing;
+    private SignalTracing.Route deleteMovieInfoTracing;
+
+    @Value("${pagination.defaultLimit:100}")
+    private int defaultPageSize;
+
+    @Value("${pagination.maxLimit:500}")
+    private int maxPageSize;
+
+    @Value("${bulk.batchSize:500}")
+    private int bulkBatchSize;
 
-    public MovieInfoController(MovieInfoService movieInfoService) {
+    public MovieInfoController(MovieInfoService movieInfoService, EventBroadcaster<MovieInfo> movieInfoEventBroadcaster,
+                               StreamProperties streamProperties, SignalTracing signalTracing) {
         this.movieInfoService = movieInfoService;
+        this.movieInfoEventBroadcaster = movieInfoEventBroadcaster;
+        this.streamProperties = streamProperties;
+        this.getAllMovieInfosTracing = signalTracing.route("getAllMovieInfos");
+        this.getMovieInfoByIdTracing = signalTracing.route("getMovieInfoById");
+        this.updateMovieInfoTracing = signalTracing.route("updateMovieInfo");
+        this.deleteMovieInfoTracing = signalTracing.route("deleteMovieInfo");
     }
 
-    Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().latest();
-
     @GetMapping("/movieinfos")
-    public Flux<MovieInfo> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year) {
-        log.info("Year is : {} ", year);
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year,
+                                                                  @RequestParam(value = "ids", required = false) List<String> ids,
+                                                                  @RequestParam(value = "after", required = false) String after,
+                                                                  @RequestParam(value = "limit", required = false) Integer limit,
+                                                                  @RequestParam(value = "fields", required = false) String fields) {
+        log.debug("Year is : {} ", year);
+        Set<String> projection;
+        try {
+            projection = FieldProjection.parse(fields, PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields : " + e.getMessage()));
+        }
+
+        if(ids != null && !ids.isEmpty())
+            return Mono.just(ResponseEntity.ok(movieInfoService.getMovieInfosByIds(ids, projection)
+                    .transform(getAllMovieInfosTracing.flux())));
+
         if(year != null)
-            return movieInfoService.getMovieInfoByYear(year);
+            return Mono.just(ResponseEntity.ok(movieInfoService.getMovieInfoByYear(year, projection)
+                    .transform(getAllMovieInfosTracing.flux())));
+
+        return getMovieInfosPage(after, limit, projection)
+                .transform(getAllMovieInfosTracing.mono());
+    }
+
+    private Mono<ResponseEntity<Flux<MovieInfo>>> getMovieInfosPage(String after, Integer limit, Set<String> projection) {
+        var pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+        if (pageSize < 1)
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be a positive value"));
+
+        String afterId;
+        try {
+            afterId = after == null ? null : PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "after is not a valid cursor"));
+        }
+
+        // one extra document tells whether there is a next page without a count query
+        return movieInfoService.getMovieInfosPage(afterId, pageSize + 1, projection)
+                .collectList()
+                .map(movieInfos -> {
+                    if (movieInfos.size() <= pageSize)
+                        return ResponseEntity.ok(Flux.fromIterable(movieInfos));
 
-        return movieInfoService.getAllMovieInfos().log();
+                    var page = movieInfos.subList(0, pageSize);
+                    var nextCursor = PageCursor.encode(page.get(pageSize - 1).getMovieInfoId());
+                    var nextLink = UriComponentsBuilder.fromPath("/v1/movieinfos")
+                            .queryParam("after", nextCursor)
+                            .queryParam("limit", pageSize)
+                            .queryParamIfPresent("fields", projection.isEmpty()
+                                    ? Optional.empty() : Optional.of(String.join(",", projection)))
+                            .toUriString();
+
+                    return ResponseEntity.ok()
+                            .header(NEXT_CURSOR_HEADER, nextCursor)
+                            .header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"")
+                            .body(Flux.fromIterable(page));
+                });
     }
 
     @GetMapping("/movieinfos/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
-        return movieInfoService.getMovieInfoById(id)
-                .map(ResponseEntity.ok()::body)
+    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id,
+                                                            @RequestParam(value = "fields", required = false) String fields,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Set<String> projection;
+        try {
+            projection = FieldProjection.parse(fields, PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields : " + e.getMessage()));
+        }
+
+        var movieInfoResponse = movieInfoService.getMovieInfoById(id, projection)
+                .map(movieInfo -> {
+                    var response = ResponseEntity.ok();
+                    Optional.ofNullable(ETags.of(movieInfo.getVersion(), projection)).ifPresent(response::eTag);
+                    return response.body(movieInfo);
+                })
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(getMovieInfoByIdTracing.mono());
+
+        if (ifNoneMatch == null)
+            return movieInfoResponse;
+
+        // revalidation reads the version only; the document is read and serialized only when it changed
+        return movieInfoService.getMovieInfoVersion(id)
+                .map(version -> ETags.of(version, projection))
+                .filter(etag -> ETags.matches(ifNoneMatch, etag))
+                .map(etag -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<MovieInfo>build())
+                .switchIfEmpty(movieInfoResponse);
     }
 
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> streamMovieInfos() {
 
-        return movieInfoSink.asFlux();
+        return movieInfoEventBroadcaster.asFlux();
     }
 
     @PostMapping("/movieinfos")
     @ResponseStatus(HttpStatus.CREATED)
-    public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
+    public Mono<MovieInfo> addMovieInfo(@RequestBody MovieInfo movieInfo) {
+        var errorMessage = MovieInfoValidator.validate(movieInfo);
+        if (errorMessage != null) {
+            return Mono.error(new MovieInfoDataException(errorMessage));
+        }
+
         return movieInfoService.addMovieInfo(movieInfo)
-                .doOnNext(savedInfo -> movieInfoSink.tryEmitNext(savedInfo));
+                .doOnNext(this::publish);
+    }
+
+    @PostMapping(value = "/movieinfos/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkResult> bulkAddMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return movieInfoService.bulkUpsertMovieInfos(movieInfos, bulkBatchSize, this::publish);
     }
 
+    /**
+     * The expected version comes from If-Match, else from the body; without either the update is unconditional.
+     * A stale version is rejected with 409 by the error handler.
+     */
     @PutMapping("/movieinfos/{id}")
-    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updateMovieInfo, @PathVariable String id) {
-        return movieInfoService.updateMovieInfo(updateMovieInfo, id)
-                .map(ResponseEntity.ok()::body)
+    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updateMovieInfo, @PathVariable String id,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var expectedVersion = toExpectedVersion(ifMatch, updateMovieInfo);
+
+        return movieInfoService.updateMovieInfo(updateMovieInfo, id, expectedVersion)
+                .doOnNext(this::publish)
+                .map(MovieInfoController::toVersionedResponse)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(updateMovieInfoTracing.mono());
+    }
+
+    @PatchMapping("/movieinfos/{id}")
+    public Mono<ResponseEntity<MovieInfo>> patchMovieInfo(@RequestBody MovieInfo patch, @PathVariable String id,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var expectedVersion = toExpectedVersion(ifMatch, patch);
+        var errorMessage = movieInfoService.validatePatch(patch);
+        if (errorMessage != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage));
+        }
+
+        return movieInfoService.patchMovieInfo(patch, id, expectedVersion)
+                .doOnNext(this::publish)
+                .map(MovieInfoController::toVersionedResponse)
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
+    }
+
+    private static Long toExpectedVersion(String ifMatch, MovieInfo movieInfo) {
+        try {
+            return Optional.ofNullable(ETags.version(ifMatch)).orElse(movieInfo.getVersion());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match : " + e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<MovieInfo> toVersionedResponse(MovieInfo movieInfo) {
+        var response = ResponseEntity.ok();
+        Optional.ofNullable(ETags.of(movieInfo.getVersion(), Set.of())).ifPresent(response::eTag);
+        return response.body(movieInfo);
     }
 
     @DeleteMapping("/movieinfos/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return movieInfoService.deleteMovieInfo(id).log();
+        return movieInfoService.deleteMovieInfo(id)
+                .doOnSuccess(deleted -> publish(tombstone(id)))
+                .transform(deleteMovieInfoTracing.mono());
+    }
+
+    /**
+     * Publishes a write to the stream movies-service invalidates its cache from. With change streams enabled the
+     * write reaches the stream through MovieInfoChangeStreamListener instead, whichever node handled it.
+     */
+    private void publish(MovieInfo movieInfo) {
+        if (!streamProperties.isChangeStreamEnabled())
+            movieInfoEventBroadcaster.emit(movieInfo);
+    }
+
+    // a delete is published as a MovieInfo that only carries its movieInfoId, as MovieInfoChangeStreamListener does
+    private static MovieInfo tombstone(String id) {
+        var tombstone = new MovieInfo();
+        tombstone.setMovieInfoId(id);
+        return tombstone;
     }
 }
@@ -1,9 +1,12 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -16,16 +19,28 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MovieInfo {
 
     @Id
     private String movieInfoId;
     @NotBlank(message = "movieInfo.name must be present")
+    @Indexed(name = "name", background = true)
     private String name;
     @NotNull
+    @Indexed(name = "year", background = true)
     @Positive(message = "movieInfo.year must be a Positive value")
     private Integer year;
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+    @Version
+    private Long version;
 
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this.movieInfoId = movieInfoId;
+        this.name = name;
+        this.year = year;
+        this.cast = cast;
+        this.release_date = release_date;
+    }
 }
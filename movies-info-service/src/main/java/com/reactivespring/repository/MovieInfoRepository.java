@@ -6,9 +6,13 @@ import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo,String> {
+import java.util.List;
+
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo,String>, MovieInfoRepositoryCustom {
 
     Flux<MovieInfo> findByYear(Integer year);
 
     Mono<MovieInfo> findByName(String name);
+
+    Flux<MovieInfo> findByMovieInfoIdIn(List<String> movieInfoIds);
 }
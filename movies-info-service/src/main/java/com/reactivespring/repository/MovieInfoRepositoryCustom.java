@@ -0,0 +1,44 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface MovieInfoRepositoryCustom {
+
+    /**
+     * Runs the query with a Mongo projection, so only the requested fields (plus id and version) leave the database.
+     */
+    Flux<MovieInfo> findProjected(Criteria criteria, Pageable pageable, Set<String> fields);
+
+    /**
+     * Keyset page in id order: the movie infos after {@code afterId} (from the start when null), projected to
+     * {@code fields} unless it is empty. Client supplied String ids sort before generated ObjectIds and $gt only
+     * compares ids of one BSON type, so a page ending on a String id continues with the ObjectIds.
+     */
+    Flux<MovieInfo> findPage(String afterId, Pageable pageable, Set<String> fields);
+
+    /**
+     * Upserts the batch by id with one unordered bulkWrite, incrementing the version of each written document;
+     * every movie info must carry its id.
+     *
+     * @return the write error message by position in the batch, empty when every record was written
+     */
+    Mono<Map<Integer, String>> bulkUpsert(List<MovieInfo> movieInfos);
+
+    /**
+     * Applies {@code changes} with $set and increments the version in one findAndModify, so concurrent writers
+     * cannot lose each other's updates.
+     *
+     * @param expectedVersion when not null, the update only applies to that version of the document
+     * @return the updated movie info, empty when there is no movie info with that id
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the movie info has another version
+     */
+    Mono<MovieInfo> updateFields(String id, Long expectedVersion, Map<String, Object> changes);
+}
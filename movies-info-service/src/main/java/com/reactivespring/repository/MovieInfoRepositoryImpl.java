@@ -0,0 +1,110 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.reactivespring.domain.MovieInfo;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class MovieInfoRepositoryImpl implements MovieInfoRepositoryCustom {
+
+    private static final int OBJECT_ID_BSON_TYPE = 7;
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoRepositoryImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<MovieInfo> findProjected(Criteria criteria, Pageable pageable, Set<String> fields) {
+        var query = Query.query(criteria).with(pageable);
+        fields.forEach(query.fields()::include);
+        query.fields().include("version");
+
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Flux<MovieInfo> findPage(String afterId, Pageable pageable, Set<String> fields) {
+        var criteria = afterId == null ? new Criteria() : afterIdCriteria(afterId);
+        if (!fields.isEmpty()) {
+            return findProjected(criteria, pageable, fields);
+        }
+        return reactiveMongoTemplate.find(Query.query(criteria).with(pageable), MovieInfo.class);
+    }
+
+    private static Criteria afterIdCriteria(String afterId) {
+        // ids that are valid ObjectIds are stored (and queried) as ObjectIds, all others as Strings
+        if (ObjectId.isValid(afterId)) {
+            return where("movieInfoId").gt(afterId);
+        }
+        return new Criteria().orOperator(
+                where("movieInfoId").gt(afterId),
+                where("movieInfoId").type(OBJECT_ID_BSON_TYPE));
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> bulkUpsert(List<MovieInfo> movieInfos) {
+        var converter = reactiveMongoTemplate.getConverter();
+        var models = movieInfos.stream()
+                .<WriteModel<Document>>map(movieInfo -> {
+                    var document = new Document();
+                    converter.write(movieInfo, document);
+                    var id = document.remove("_id");
+                    document.remove("version");
+                    var update = new Document("$set", document).append("$inc", new Document("version", 1L));
+                    return new UpdateOneModel<>(Filters.eq("_id", id), update, new UpdateOptions().upsert(true));
+                })
+                .collect(Collectors.toList());
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .map(bulkWriteResult -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))));
+    }
+
+    @Override
+    public Mono<MovieInfo> updateFields(String id, Long expectedVersion, Map<String, Object> changes) {
+        var criteria = where("movieInfoId").is(id);
+        if (expectedVersion != null) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        var update = new Update();
+        changes.forEach(update::set);
+        update.inc("version", 1);
+
+        return reactiveMongoTemplate.findAndModify(Query.query(criteria), update,
+                        FindAndModifyOptions.options().returnNew(true), MovieInfo.class)
+                // no match on a versioned update is either a missing document or a stale version
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null
+                        ? Mono.empty()
+                        : reactiveMongoTemplate.exists(Query.query(where("movieInfoId").is(id)), MovieInfo.class)
+                        .flatMap(exists -> exists
+                                ? Mono.error(new OptimisticLockingFailureException(
+                                "movieInfo " + id + " is no longer at version " + expectedVersion))
+                                : Mono.empty())));
+    }
+}
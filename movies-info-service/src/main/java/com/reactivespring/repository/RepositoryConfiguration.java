@@ -0,0 +1,25 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.util.List;
+
+@Configuration
+public class RepositoryConfiguration {
+
+    @Bean
+    public static BeanPostProcessor repositoryTracingPostProcessor(ObjectProvider<Tracer> tracer) {
+        return RepositoryTracing.postProcessor(tracer);
+    }
+
+    @Bean
+    public IndexReconciler indexReconciler(ReactiveMongoTemplate reactiveMongoTemplate) {
+        return new IndexReconciler(reactiveMongoTemplate, List.of(MovieInfo.class));
+    }
+}
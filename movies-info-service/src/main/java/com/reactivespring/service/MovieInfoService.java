@@ -1,10 +1,30 @@
 package com.reactivespring.service;
 
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.validator.MovieInfoValidator;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 public class MovieInfoService {
@@ -23,26 +43,148 @@ public class MovieInfoService {
         return movieInfoRepository.findAll();
     }
 
+    /**
+     * Keyset page ordered by _id: the first page when {@code afterId} is null, otherwise the documents after it.
+     * A non empty {@code fields} set is pushed down as a Mongo projection.
+     */
+    public Flux<MovieInfo> getMovieInfosPage(String afterId, int limit, Set<String> fields) {
+        var pageable = PageRequest.of(0, limit, Sort.by("movieInfoId"));
+        return movieInfoRepository.findPage(afterId, pageable, fields);
+    }
+
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids, Set<String> fields) {
+        if (!fields.isEmpty())
+            return movieInfoRepository.findProjected(where("movieInfoId").in(ids), Pageable.unpaged(), fields);
+
+        return movieInfoRepository.findByMovieInfoIdIn(ids);
+    }
+
     public Mono<MovieInfo> getMovieInfoById(String id) {
         return movieInfoRepository.findById(id);
     }
 
-    public Mono<MovieInfo> updateMovieInfo(MovieInfo updateMovieInfo, String id) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo -> {
-                   movieInfo.setCast(updateMovieInfo.getCast());
-                   movieInfo.setName(updateMovieInfo.getName());
-                   movieInfo.setRelease_date(updateMovieInfo.getRelease_date());
-                   movieInfo.setYear(updateMovieInfo.getYear());
-                   return movieInfoRepository.save(movieInfo);
-                });
+    /**
+     * Reads only the version of the movie info, for conditional requests; empty when absent or unversioned.
+     */
+    public Mono<Long> getMovieInfoVersion(String id) {
+        return movieInfoRepository.findProjected(where("movieInfoId").is(id), Pageable.unpaged(), Set.of("version"))
+                .next()
+                .flatMap(movieInfo -> Mono.justOrEmpty(movieInfo.getVersion()));
+    }
+
+    public Mono<MovieInfo> getMovieInfoById(String id, Set<String> fields) {
+        if (!fields.isEmpty())
+            return movieInfoRepository.findProjected(where("movieInfoId").is(id), Pageable.unpaged(), fields).next();
+
+        return getMovieInfoById(id);
+    }
+
+    /**
+     * Replaces the updatable fields in a single atomic write.
+     *
+     * @param expectedVersion the version the client last read, or null to overwrite unconditionally
+     */
+    public Mono<MovieInfo> updateMovieInfo(MovieInfo updateMovieInfo, String id, Long expectedVersion) {
+        var changes = new LinkedHashMap<String, Object>();
+        changes.put("name", updateMovieInfo.getName());
+        changes.put("year", updateMovieInfo.getYear());
+        changes.put("cast", updateMovieInfo.getCast());
+        changes.put("release_date", updateMovieInfo.getRelease_date());
+        return movieInfoRepository.updateFields(id, expectedVersion, changes);
+    }
+
+    /**
+     * Writes only the fields present in {@code patch}; absent (null) fields keep their stored value.
+     */
+    public Mono<MovieInfo> patchMovieInfo(MovieInfo patch, String id, Long expectedVersion) {
+        return movieInfoRepository.updateFields(id, expectedVersion, patchedFields(patch));
+    }
+
+    /**
+     * @return the sorted, comma joined constraint violation messages of the fields present in {@code patch},
+     * or null when it is valid
+     */
+    public String validatePatch(MovieInfo patch) {
+        if (patch.getName() == null && patch.getYear() == null && patch.getCast() == null
+                && patch.getRelease_date() == null) {
+            return "movieInfo : at least one field must be present";
+        }
+        return MovieInfoValidator.validatePatch(patch);
+    }
+
+    private static Map<String, Object> patchedFields(MovieInfo patch) {
+        var changes = new LinkedHashMap<String, Object>();
+        Optional.ofNullable(patch.getName()).ifPresent(name -> changes.put("name", name));
+        Optional.ofNullable(patch.getYear()).ifPresent(year -> changes.put("year", year));
+        Optional.ofNullable(patch.getCast()).ifPresent(cast -> changes.put("cast", cast));
+        Optional.ofNullable(patch.getRelease_date()).ifPresent(releaseDate -> changes.put("release_date", releaseDate));
+        return changes;
     }
 
     public Mono<Void> deleteMovieInfo(String id) {
         return movieInfoRepository.deleteById(id);
     }
 
-    public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
+    public Flux<MovieInfo> getMovieInfoByYear(Integer year, Set<String> fields) {
+        if (!fields.isEmpty())
+            return movieInfoRepository.findProjected(where("year").is(year), Pageable.unpaged(), fields);
+
         return movieInfoRepository.findByYear(year);
     }
+
+    /**
+     * Validates each record and upserts the valid ones in batches of {@code batchSize} with one unordered bulkWrite
+     * per batch. One batch is written at a time, so the upload is only read as fast as Mongo absorbs it.
+     * Results are emitted in upload order, one per record; {@code onWritten} sees every written movie info.
+     */
+    public Flux<BulkResult> bulkUpsertMovieInfos(Flux<MovieInfo> movieInfos, int batchSize, Consumer<MovieInfo> onWritten) {
+        return movieInfos
+                .index()
+                .buffer(batchSize)
+                .concatMap(batch -> upsertBatch(batch, onWritten), 1);
+    }
+
+    private Flux<BulkResult> upsertBatch(List<Tuple2<Long, MovieInfo>> batch, Consumer<MovieInfo> onWritten) {
+        var results = new BulkResult[batch.size()];
+        var valid = new ArrayList<MovieInfo>();
+        var validPositions = new ArrayList<Integer>();
+
+        for (int position = 0; position < batch.size(); position++) {
+            var index = batch.get(position).getT1();
+            var movieInfo = batch.get(position).getT2();
+            var errorMessage = MovieInfoValidator.validate(movieInfo);
+            if (errorMessage != null) {
+                results[position] = BulkResult.failed(index, movieInfo.getMovieInfoId(), errorMessage);
+                continue;
+            }
+            if (movieInfo.getMovieInfoId() == null) {
+                movieInfo.setMovieInfoId(new ObjectId().toHexString());
+            }
+            valid.add(movieInfo);
+            validPositions.add(position);
+        }
+
+        if (valid.isEmpty()) {
+            return Flux.fromArray(results);
+        }
+
+        return movieInfoRepository.bulkUpsert(valid)
+                .onErrorResume(ex -> Mono.just(IntStream.range(0, valid.size()).boxed()
+                        .collect(Collectors.toMap(Function.identity(), position -> String.valueOf(ex.getMessage())))))
+                .flatMapMany(writeErrors -> {
+                    for (int i = 0; i < valid.size(); i++) {
+                        var position = validPositions.get(i);
+                        var index = batch.get(position).getT1();
+                        var id = valid.get(i).getMovieInfoId();
+                        var writeError = writeErrors.get(i);
+                        if (writeError == null) {
+                            onWritten.accept(valid.get(i));
+                            results[position] = BulkResult.succeeded(index, id);
+                        } else {
+                            results[position] = BulkResult.failed(index, id, writeError);
+                        }
+                    }
+                    return Flux.fromArray(results);
+                });
+    }
 }
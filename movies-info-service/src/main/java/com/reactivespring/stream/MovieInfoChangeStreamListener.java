@@ -0,0 +1,27 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds /v1/movieinfos/stream from the movieInfo collection's change stream. Deletes are published as a MovieInfo
+ * that only carries its movieInfoId.
+ */
+@Component
+public class MovieInfoChangeStreamListener extends ChangeStreamListener<MovieInfo> {
+
+    public MovieInfoChangeStreamListener(ReactiveMongoTemplate reactiveMongoTemplate,
+                                         EventBroadcaster<MovieInfo> movieInfoEventBroadcaster,
+                                         StreamProperties streamProperties) {
+        super("movieInfo", MovieInfo.class, MovieInfoChangeStreamListener::tombstone, reactiveMongoTemplate,
+                new ResumeTokenStore(reactiveMongoTemplate, streamProperties), movieInfoEventBroadcaster,
+                streamProperties);
+    }
+
+    private static MovieInfo tombstone(String movieInfoId) {
+        var tombstone = new MovieInfo();
+        tombstone.setMovieInfoId(movieInfoId);
+        return tombstone;
+    }
+}
@@ -0,0 +1,85 @@
+package com.reactivespring.validator;
+
+import com.reactivespring.domain.MovieInfo;
+
+import java.util.List;
+
+/**
+ * Checks the constraints declared on {@link MovieInfo} without going through the Bean Validation engine.
+ * The messages and their order are the ones Bean Validation reports (sorted, comma joined), and nothing is
+ * allocated for a valid movie info. Keep it in step with the annotations on {@link MovieInfo}.
+ */
+public class MovieInfoValidator {
+
+    static final String CAST_PRESENT = "movieInfo.cast must be present";
+    static final String NAME_PRESENT = "movieInfo.name must be present";
+    static final String YEAR_POSITIVE = "movieInfo.year must be a Positive value";
+    // default @NotNull message
+    static final String YEAR_NOT_NULL = "must not be null";
+
+    private MovieInfoValidator() {
+    }
+
+    /**
+     * @return the sorted, comma joined constraint violation messages, or null when the movie info is valid
+     */
+    public static String validate(MovieInfo movieInfo) {
+        return violations(movieInfo, false);
+    }
+
+    /**
+     * Same as {@link #validate} restricted to the fields present (non null) in {@code patch}.
+     */
+    public static String validatePatch(MovieInfo patch) {
+        return violations(patch, true);
+    }
+
+    // appends in message order, so the result needs no sorting
+    private static String violations(MovieInfo movieInfo, boolean presentFieldsOnly) {
+        StringBuilder errors = null;
+
+        List<String> cast = movieInfo.getCast();
+        if (cast != null) {
+            for (var member : cast) {
+                if (isBlank(member)) {
+                    errors = append(errors, CAST_PRESENT);
+                }
+            }
+        }
+
+        var name = movieInfo.getName();
+        if (isBlank(name) && !(presentFieldsOnly && name == null)) {
+            errors = append(errors, NAME_PRESENT);
+        }
+
+        var year = movieInfo.getYear();
+        if (year != null && year <= 0) {
+            errors = append(errors, YEAR_POSITIVE);
+        }
+        if (year == null && !presentFieldsOnly) {
+            errors = append(errors, YEAR_NOT_NULL);
+        }
+
+        return errors == null ? null : errors.toString();
+    }
+
+    private static StringBuilder append(StringBuilder errors, String message) {
+        if (errors == null) {
+            return new StringBuilder(message);
+        }
+        return errors.append(',').append(message);
+    }
+
+    // @NotBlank semantics: null, empty or only characters String.trim() strips
+    private static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
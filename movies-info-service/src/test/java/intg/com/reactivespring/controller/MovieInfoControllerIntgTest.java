@@ -1,19 +1,31 @@
 package com.reactivespring.controller;
 
+import brave.Span;
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.tracing.InMemorySpanHandler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,6 +41,18 @@ class MovieInfoControllerIntgTest {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    InMemorySpanHandler spanHandler;
+
+    @TestConfiguration
+    static class TracingConfiguration {
+
+        @Bean
+        InMemorySpanHandler inMemorySpanHandler() {
+            return new InMemorySpanHandler();
+        }
+    }
+
     public static String MOVIE_INFO_URL = "/v1/movieinfos";
 
     @BeforeEach
@@ -75,6 +99,55 @@ class MovieInfoControllerIntgTest {
         // then
     }
 
+    @Test
+    void bulkAddMovieInfos() {
+        // given
+        var movieInfos = Flux.just(
+                new MovieInfo(null, "Batman Forever",
+                        1995, List.of("Val Kilmer"), LocalDate.parse("1995-06-16")),
+                new MovieInfo(null, "",
+                        -1, List.of("Nobody"), LocalDate.parse("1995-06-16")),
+                new MovieInfo("abc", "Dark Knight Rises Remastered",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        // when
+        var results = webTestClient.post()
+                .uri(MOVIE_INFO_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(movieInfos, MovieInfo.class)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BulkResult.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(results)
+                .assertNext(result -> {
+                    assertEquals(0, result.getIndex());
+                    assertTrue(result.isSuccess());
+                    assertNotNull(result.getId());
+                })
+                .assertNext(result -> {
+                    assertEquals(1, result.getIndex());
+                    assertFalse(result.isSuccess());
+                    assertEquals("movieInfo.name must be present,movieInfo.year must be a Positive value", result.getError());
+                })
+                .assertNext(result -> {
+                    assertEquals(2, result.getIndex());
+                    assertTrue(result.isSuccess());
+                    assertEquals("abc", result.getId());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(movieInfoRepository.count())
+                .expectNext(4L)
+                .verifyComplete();
+        StepVerifier.create(movieInfoRepository.findById("abc"))
+                .assertNext(movieInfo -> assertEquals("Dark Knight Rises Remastered", movieInfo.getName()))
+                .verifyComplete();
+    }
+
     @Test
     void getAllMovieInfos() {
         webTestClient.get()
@@ -85,6 +158,108 @@ class MovieInfoControllerIntgTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMovieInfos_paginated() {
+
+        var firstPage = webTestClient.get()
+                .uri(MOVIE_INFO_URL + "?limit=2")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().exists(HttpHeaders.LINK)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .returnResult();
+
+        var nextCursor = firstPage.getResponseHeaders().getFirst(MovieInfoController.NEXT_CURSOR_HEADER);
+        assertNotNull(nextCursor);
+
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "?limit=2&after={after}", nextCursor)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().doesNotExist(MovieInfoController.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getAllMovieInfos_paginated_acrossIdTypes() {
+        // "abc" sorts before the generated ObjectIds, so the first page ends on the String/ObjectId change
+        var movieInfoIds = new ArrayList<String>();
+        var firstPage = webTestClient.get()
+                .uri(MOVIE_INFO_URL + "?limit=1")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1)
+                .returnResult();
+        movieInfoIds.add(firstPage.getResponseBody().get(0).getMovieInfoId());
+        var nextCursor = firstPage.getResponseHeaders().getFirst(MovieInfoController.NEXT_CURSOR_HEADER);
+
+        while (nextCursor != null && movieInfoIds.size() < 10) {
+            var page = webTestClient.get()
+                    .uri(MOVIE_INFO_URL + "?limit=1&after={after}", nextCursor)
+                    .exchange()
+                    .expectStatus().is2xxSuccessful()
+                    .expectBodyList(MovieInfo.class)
+                    .hasSize(1)
+                    .returnResult();
+            movieInfoIds.add(page.getResponseBody().get(0).getMovieInfoId());
+            nextCursor = page.getResponseHeaders().getFirst(MovieInfoController.NEXT_CURSOR_HEADER);
+        }
+
+        assertEquals("abc", movieInfoIds.get(0));
+        assertEquals(3, movieInfoIds.size());
+        assertEquals(3, new HashSet<>(movieInfoIds).size());
+    }
+
+    @Test
+    void getAllMovieInfos_invalidCursor() {
+
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "?after=!!")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getAllMovieInfos_projected() {
+
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "?fields=name,year")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[0].movieInfoId").exists()
+                .jsonPath("$[0].name").exists()
+                .jsonPath("$[0].year").exists()
+                .jsonPath("$[0].cast").doesNotExist()
+                .jsonPath("$[0].release_date").doesNotExist();
+    }
+
+    @Test
+    void getMovieInfoById_projected() {
+
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "/{id}?fields=name", "abc")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$.year").doesNotExist()
+                .jsonPath("$.cast").doesNotExist();
+    }
+
+    @Test
+    void getAllMovieInfos_unknownField() {
+
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "?fields=name,budget")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void getMovieInfoByYear() {
 
@@ -100,6 +275,21 @@ class MovieInfoControllerIntgTest {
                 .hasSize(1);
     }
 
+    @Test
+    void getMovieInfosByIds() {
+
+        var uri = UriComponentsBuilder.fromUriString(MOVIE_INFO_URL)
+                .queryParam("ids", "abc,xyz")
+                .buildAndExpand().toUri();
+
+        webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void getMovieInfoById() {
 
@@ -121,6 +311,78 @@ class MovieInfoControllerIntgTest {
 //                });
     }
 
+    @Test
+    void getMovieInfoById_traced() {
+
+        // given
+        var movieInfoId = "abc";
+        spanHandler.clear();
+
+        // when
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+
+        // then
+        var serverSpan = spanHandler.await(span -> span.kind() == Span.Kind.SERVER
+                && (MOVIE_INFO_URL + "/" + movieInfoId).equals(span.tag("http.path")));
+        var mongoSpan = spanHandler.await(span -> serverSpan.traceId().equals(span.traceId())
+                && "mongodb".equals(span.remoteServiceName()));
+        assertEquals(serverSpan.id(), mongoSpan.parentId());
+        assertTrue(mongoSpan.name().startsWith("MovieInfoRepository."));
+    }
+
+    @Test
+    void getMovieInfoById_notModified() {
+
+        // given
+        var movieInfoId = "abc";
+        var etag = webTestClient.get()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // when
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, etag)
+                .expectBody()
+                .isEmpty();
+
+        // then
+        webTestClient.put()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .bodyValue(new MovieInfo(null, "Kadu",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2023-06-15")))
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient.get()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Kadu");
+    }
+
     @Test
     void updateMovieInfo() {
         // given
@@ -148,6 +410,53 @@ class MovieInfoControllerIntgTest {
         // then
     }
 
+    @Test
+    void patchMovieInfo() {
+        // given
+        var movieInfoId = "abc";
+        var patch = new MovieInfo();
+        patch.setName("Kadu");
+
+        // when
+        webTestClient.patch()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Kadu")
+                .jsonPath("$.year").isEqualTo(2012)
+                .jsonPath("$.version").isEqualTo(1);
+
+        // then
+        webTestClient.patch()
+                .uri(MOVIE_INFO_URL + "/{id}", movieInfoId)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void patchMovieInfo_invalidField() {
+        // given
+        var patch = new MovieInfo();
+        patch.setYear(-2005);
+
+        // when
+        webTestClient.patch()
+                .uri(MOVIE_INFO_URL + "/{id}", "abc")
+                .bodyValue(patch)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void deleteMovieInfo() {
         // given
@@ -207,4 +516,27 @@ class MovieInfoControllerIntgTest {
                 .thenCancel()
                 .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamMovieInfos_carriesDeletes() {
+        // given
+        var movieInfoId = "abc";
+
+        var deletesFlux = webTestClient.get()
+                .uri(MOVIE_INFO_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .filter(movieInfo -> movieInfoId.equals(movieInfo.getMovieInfoId()) && movieInfo.getName() == null);
+
+        // when
+        StepVerifier.create(deletesFlux)
+                .then(() -> movieInfoRepository.deleteById(movieInfoId).block())
+        // then
+                .assertNext(movieInfo -> assertEquals(movieInfoId, movieInfo.getMovieInfoId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+}
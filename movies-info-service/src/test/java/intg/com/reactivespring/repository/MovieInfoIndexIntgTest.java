@@ -0,0 +1,84 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({RepositoryConfiguration.class, QueryPlanRecorder.class})
+class MovieInfoIndexIntgTest {
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    IndexReconciler indexReconciler;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    QueryPlanRecorder queryPlanRecorder;
+
+    @BeforeEach
+    void setUp() {
+
+        var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        movieInfoRepository.saveAll(movieinfos)
+                .blockLast();
+        indexReconciler.reconcile().block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void findByYear_usesIndex() {
+        // when
+        var winningPlan = queryPlanRecorder.winningPlan(reactiveMongoTemplate, movieInfoRepository.findByYear(2005));
+
+        // then
+        assertTrue(winningPlan.contains("IXSCAN"), winningPlan);
+    }
+
+    @Test
+    void findProjectedByYear_usesIndex() {
+        // when
+        var winningPlan = queryPlanRecorder.winningPlan(reactiveMongoTemplate,
+                movieInfoRepository.findProjected(where("year").is(2005), Pageable.unpaged(), Set.of("name")));
+
+        // then
+        assertTrue(winningPlan.contains("IXSCAN"), winningPlan);
+    }
+
+    @Test
+    void findByName_usesIndex() {
+        // when
+        var winningPlan = queryPlanRecorder.winningPlan(reactiveMongoTemplate,
+                movieInfoRepository.findByName("Batman Begins"));
+
+        // then
+        assertTrue(winningPlan.contains("IXSCAN"), winningPlan);
+    }
+}
@@ -97,4 +97,20 @@ class MovieInfoRepositoryIntgTest {
                 .verifyComplete();
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void findByMovieInfoIdIn() {
+        // given
+
+        // when
+        var moviesInfoFlux = movieInfoRepository.findByMovieInfoIdIn(List.of("abc", "def")).log();
+
+        // then
+        StepVerifier.create(moviesInfoFlux)
+                .assertNext(movieInfo -> {
+                    assertEquals("Dark Knight Rises", movieInfo.getName());
+                })
+                .verifyComplete();
+
+    }
+}
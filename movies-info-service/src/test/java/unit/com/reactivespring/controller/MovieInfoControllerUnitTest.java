@@ -2,26 +2,41 @@ package com.reactivespring.controller;
 
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.stream.EventBroadcaster;
+import com.reactivespring.stream.StreamConfiguration;
+import com.reactivespring.tracing.SignalTracing;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 
 import static com.reactivespring.controller.MovieInfoControllerIntgTest.MOVIE_INFO_URL;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anySet;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.isA;
+import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MovieInfoController.class)
 @AutoConfigureWebTestClient
+@Import({StreamConfiguration.class, SignalTracing.class})
 public class MovieInfoControllerUnitTest {
 
     @MockBean
@@ -30,6 +45,9 @@ public class MovieInfoControllerUnitTest {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private EventBroadcaster<MovieInfo> movieInfoEventBroadcaster;
+
     @Test
     void getAllMovieInfos() {
 
@@ -40,7 +58,7 @@ public class MovieInfoControllerUnitTest {
                 new MovieInfo("abc", "Dark Knight Rises",
                         2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
 
-        when(moviesInfoServiceMock.getAllMovieInfos()).thenReturn(Flux.fromIterable(movieInfos));
+        when(moviesInfoServiceMock.getMovieInfosPage(isNull(), anyInt(), anySet())).thenReturn(Flux.fromIterable(movieInfos));
 
         webTestClient
                 .get()
@@ -56,7 +74,7 @@ public class MovieInfoControllerUnitTest {
     void getMovieInfoById() {
         var id = "abc";
 
-        when(moviesInfoServiceMock.getMovieInfoById(isA(String.class)))
+        when(moviesInfoServiceMock.getMovieInfoById(isA(String.class), anySet()))
                 .thenReturn(Mono.just(new MovieInfo("abc", "Dark Knight Rises",
                         2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))));
 
@@ -136,7 +154,7 @@ public class MovieInfoControllerUnitTest {
         var updatedMovieInfo = new MovieInfo("abc", "Dark Knight Rises 1",
                 2013, List.of("Christian Bale1", "Tom Hardy1"), LocalDate.parse("2012-07-20"));
 
-        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class)))
+        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), isNull()))
                 .thenReturn(Mono.just(updatedMovieInfo));
 
         webTestClient
@@ -154,13 +172,47 @@ public class MovieInfoControllerUnitTest {
                 });
     }
 
+    @Test
+    void updateMovieInfo_publishesToStream() {
+        //given
+        var updatedMovieInfo = new MovieInfo("def", "Dark Knight Rises 1",
+                2013, List.of("Christian Bale1", "Tom Hardy1"), LocalDate.parse("2012-07-20"));
+        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), isNull()))
+                .thenReturn(Mono.just(updatedMovieInfo));
+        when(moviesInfoServiceMock.deleteMovieInfo(isA(String.class)))
+                .thenReturn(Mono.empty());
+
+        //when
+        StepVerifier.create(movieInfoEventBroadcaster.asFlux()
+                        .filter(movieInfo -> "def".equals(movieInfo.getMovieInfoId())))
+                .then(() -> webTestClient
+                        .put()
+                        .uri(MOVIE_INFO_URL + "/{id}", "def")
+                        .bodyValue(updatedMovieInfo)
+                        .exchange()
+                        .expectStatus()
+                        .isOk())
+        //then
+                // change streams are off by default, so the controller publishes the write movies-service evicts on
+                .assertNext(movieInfo -> assertEquals("Dark Knight Rises 1", movieInfo.getName()))
+                .then(() -> webTestClient
+                        .delete()
+                        .uri(MOVIE_INFO_URL + "/{id}", "def")
+                        .exchange()
+                        .expectStatus()
+                        .isNoContent())
+                .assertNext(movieInfo -> assertNull(movieInfo.getName()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
     @Test
     void updateMovieInfo_notFound() {
         var id = "abc1";
         var updatedMovieInfo = new MovieInfo("abc", "Dark Knight Rises 1",
                 2013, List.of("Christian Bale1", "Tom Hardy1"), LocalDate.parse("2012-07-20"));
 
-        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class)))
+        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), isNull()))
                 .thenReturn(Mono.empty());
 
 
@@ -173,11 +225,30 @@ public class MovieInfoControllerUnitTest {
                 .isNotFound();
     }
 
+    @Test
+    void updateMovieInfo_versionConflict() {
+        var id = "abc";
+        var updatedMovieInfo = new MovieInfo("abc", "Dark Knight Rises 1",
+                2013, List.of("Christian Bale1", "Tom Hardy1"), LocalDate.parse("2012-07-20"));
+
+        when(moviesInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class), eq(3L)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("movieInfo abc is no longer at version 3")));
+
+        webTestClient
+                .put()
+                .uri(MOVIE_INFO_URL + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .bodyValue(updatedMovieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void getMovieInfoById_notFound() {
         var id = "abc1";
 
-        when(moviesInfoServiceMock.getMovieInfoById(isA(String.class)))
+        when(moviesInfoServiceMock.getMovieInfoById(isA(String.class), anySet()))
                 .thenReturn(Mono.empty());
 
         webTestClient
@@ -0,0 +1,99 @@
+package com.reactivespring.validator;
+
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MovieInfoValidatorTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void validate_validMovieInfo() {
+        //given
+        var movieInfo = new MovieInfo(null, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        //when
+        var errorMessage = MovieInfoValidator.validate(movieInfo);
+
+        //then
+        assertNull(errorMessage);
+    }
+
+    @Test
+    void validate_matchesBeanValidation() {
+        //given
+        var names = Arrays.asList(null, "", " \t", "Batman Begins", " Batman Begins ");
+        var years = Arrays.asList(null, -2005, 0, 2005);
+        List<List<String>> casts = Arrays.asList(null, List.of(), List.of("Christian Bale"), List.of("", "Christian Bale"),
+                List.of(" ", "\n"), Arrays.asList("Christian Bale", null));
+
+        for (var name : names) {
+            for (var year : years) {
+                for (var cast : casts) {
+                    var movieInfo = new MovieInfo(null, name, year, cast, LocalDate.parse("2005-06-15"));
+
+                    //when
+                    var errorMessage = MovieInfoValidator.validate(movieInfo);
+
+                    //then
+                    assertEquals(beanValidationErrors(validator.validate(movieInfo)), errorMessage, movieInfo.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void validatePatch_checksPresentFieldsOnly() {
+        //given
+        var patch = new MovieInfo();
+        patch.setYear(-2005);
+
+        //when
+        var errorMessage = MovieInfoValidator.validatePatch(patch);
+
+        //then
+        assertEquals("movieInfo.year must be a Positive value", errorMessage);
+
+        //given
+        patch.setYear(2005);
+        patch.setName(" ");
+
+        //when
+        errorMessage = MovieInfoValidator.validatePatch(patch);
+
+        //then
+        assertEquals("movieInfo.name must be present", errorMessage);
+
+        //given
+        patch.setName(null);
+
+        //when
+        errorMessage = MovieInfoValidator.validatePatch(patch);
+
+        //then
+        assertNull(errorMessage);
+    }
+
+    private static String beanValidationErrors(Set<ConstraintViolation<MovieInfo>> constraintViolations) {
+        if (constraintViolations.isEmpty()) {
+            return null;
+        }
+        return constraintViolations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+}
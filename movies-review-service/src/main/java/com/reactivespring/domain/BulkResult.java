@@ -0,0 +1,29 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one record of a bulk upload; {@code index} is the zero based position of the record in the upload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResult {
+
+    private long index;
+    private String id;
+    private boolean success;
+    private String error;
+
+    public static BulkResult succeeded(long index, String id) {
+        return new BulkResult(index, id, true, null);
+    }
+
+    public static BulkResult failed(long index, String id, String error) {
+        return new BulkResult(index, id, false, error);
+    }
+}
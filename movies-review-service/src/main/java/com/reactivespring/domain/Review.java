@@ -1,10 +1,13 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
@@ -14,6 +17,9 @@ import javax.validation.constraints.NotNull;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// also serves plain movieInfoId lookups through its prefix
+@CompoundIndex(name = "movieInfoId_rating", def = "{'movieInfoId': 1, 'rating': -1}", background = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Review {
 
     @Id
@@ -23,4 +29,13 @@ public class Review {
     private String comment;
     @Min(value = 0L, message = "review.rating : please pass a non-negative value")
     private Double rating;
+    @Version
+    private Long version;
+
+    public Review(String reviewId, Long movieInfoId, String comment, Double rating) {
+        this.reviewId = reviewId;
+        this.movieInfoId = movieInfoId;
+        this.comment = comment;
+        this.rating = rating;
+    }
 }
@@ -0,0 +1,36 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per movie review aggregate, kept up to date with $inc on every review write so that readers never scan reviews.
+ * The histogram is keyed by the whole part of the rating.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewSummary {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private long ratedCount;
+    private double ratingSum;
+    private Map<String, Long> histogram = new HashMap<>();
+
+    public ReviewSummary(Long movieInfoId) {
+        this.movieInfoId = movieInfoId;
+    }
+
+    public Double getAverage() {
+        return ratedCount == 0 ? null : ratingSum / ratedCount;
+    }
+}
@@ -1,78 +1,319 @@
 package com.reactivespring.handler;
 
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
 import com.reactivespring.repository.ReviewRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
+import com.reactivespring.stream.EventBroadcaster;
+import com.reactivespring.stream.StreamProperties;
+import com.reactivespring.tracing.SignalTracing;
+import com.reactivespring.util.ETags;
+import com.reactivespring.util.FieldProjection;
+import com.reactivespring.util.PageCursor;
+import com.reactivespring.validator.ReviewValidator;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
+import reactor.util.function.Tuple2;
 
-import javax.validation.ConstraintViolation;
-import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Component
 @Slf4j
 public class ReviewHandler {
 
-    @Autowired
-    private Validator validator;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final Set<String> PROJECTABLE_FIELDS = Set.of("reviewId", "movieInfoId", "comment", "rating", "version");
+
+    @Value("${pagination.defaultLimit:100}")
+    private int defaultPageSize;
+
+    @Value("${pagination.maxLimit:500}")
+    private int maxPageSize;
+
+    @Value("${bulk.batchSize:500}")
+    private int bulkBatchSize;
 
     private ReviewRepository reviewRepository;
+    private ReviewSummaryRepository reviewSummaryRepository;
+    private EventBroadcaster<Review> reviewEventBroadcaster;
+    private StreamProperties streamProperties;
+    private SignalTracing.Route getReviewsStreamTracing;
 
-    public ReviewHandler(ReviewRepository reviewRepository) {
+    public ReviewHandler(ReviewRepository reviewRepository, ReviewSummaryRepository reviewSummaryRepository,
+                         EventBroadcaster<Review> reviewEventBroadcaster, StreamProperties streamProperties,
+                         SignalTracing signalTracing) {
         this.reviewRepository = reviewRepository;
+        this.reviewSummaryRepository = reviewSummaryRepository;
+        this.reviewEventBroadcaster = reviewEventBroadcaster;
+        this.streamProperties = streamProperties;
+        this.getReviewsStreamTracing = signalTracing.route("getReviewsStream");
     }
 
-    Sinks.Many<Review> reviewsSink = Sinks.many().replay().latest();
-
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
 
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
                 .flatMap(reviewRepository::save)
+                .flatMap(review -> reviewSummaryRepository.applyChange(null, review).thenReturn(review))
                 .doOnNext(review -> {
-                    reviewsSink.tryEmitNext(review);
+                    // with change streams enabled the insert reaches the stream through ReviewChangeStreamListener
+                    if (!streamProperties.isChangeStreamEnabled()) {
+                        reviewEventBroadcaster.emit(review);
+                    }
                 })
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
-    private void validate(Review review) {
-        var constraintViolations = validator.validate(review);
-        log.error("constraintViolations : {} ", constraintViolations);
-
-        if (constraintViolations.size() > 0) {
-            var errorMessage = constraintViolations
-                    .stream()
-                    .map(ConstraintViolation::getMessage)
-                    .sorted()
-                    .collect(Collectors.joining(", "));
+    // package-private for ReviewValidationBenchmark
+    void validate(Review review) {
+        var errorMessage = validationErrors(review);
 
+        if (errorMessage != null) {
             throw new ReviewDataException(errorMessage);
         }
     }
 
+    /**
+     * @return the sorted, comma joined constraint violation messages, or null when the review is valid
+     */
+    private String validationErrors(Review review) {
+        var errorMessage = ReviewValidator.validate(review);
+        if (errorMessage != null) {
+            log.error("constraintViolations : {} ", errorMessage);
+        }
+        return errorMessage;
+    }
+
+    /**
+     * NDJSON ingest: validates each review and inserts the valid ones in batches of {@code bulk.batchSize} with
+     * one unordered bulkWrite per batch, then folds the inserted ones into the review summaries.
+     * One batch is written at a time, so the upload is only read as fast as Mongo absorbs it.
+     * Responds with one {@link BulkResult} per record, in upload order.
+     */
+    public Mono<ServerResponse> bulkAddReviews(ServerRequest request) {
+        var results = request.bodyToFlux(Review.class)
+                .index()
+                .buffer(bulkBatchSize)
+                .concatMap(this::insertBatch, 1);
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(results, BulkResult.class);
+    }
+
+    private Flux<BulkResult> insertBatch(List<Tuple2<Long, Review>> batch) {
+        var results = new BulkResult[batch.size()];
+        var valid = new ArrayList<Review>();
+        var validPositions = new ArrayList<Integer>();
+
+        for (int position = 0; position < batch.size(); position++) {
+            var index = batch.get(position).getT1();
+            var review = batch.get(position).getT2();
+            var errorMessage = validationErrors(review);
+            if (errorMessage != null) {
+                results[position] = BulkResult.failed(index, review.getReviewId(), errorMessage);
+                continue;
+            }
+            if (review.getReviewId() == null) {
+                review.setReviewId(new ObjectId().toHexString());
+            }
+            valid.add(review);
+            validPositions.add(position);
+        }
+
+        if (valid.isEmpty()) {
+            return Flux.fromArray(results);
+        }
+
+        return reviewRepository.bulkInsert(valid)
+                .onErrorResume(ex -> Mono.just(IntStream.range(0, valid.size()).boxed()
+                        .collect(Collectors.toMap(Function.identity(), position -> String.valueOf(ex.getMessage())))))
+                .flatMapMany(writeErrors -> {
+                    var inserted = new ArrayList<Review>();
+                    for (int i = 0; i < valid.size(); i++) {
+                        var position = validPositions.get(i);
+                        var index = batch.get(position).getT1();
+                        var review = valid.get(i);
+                        var writeError = writeErrors.get(i);
+                        if (writeError == null) {
+                            inserted.add(review);
+                            results[position] = BulkResult.succeeded(index, review.getReviewId());
+                        } else {
+                            results[position] = BulkResult.failed(index, review.getReviewId(), writeError);
+                        }
+                    }
+                    // with change streams enabled the inserts reach the stream through ReviewChangeStreamListener
+                    if (!streamProperties.isChangeStreamEnabled()) {
+                        inserted.forEach(reviewEventBroadcaster::emit);
+                    }
+                    return reviewSummaryRepository.applyInserts(inserted)
+                            .thenMany(Flux.fromArray(results));
+                });
+    }
+
     public Mono<ServerResponse> getReviews(ServerRequest request) {
 
         var movieInfoId = request.queryParam("movieInfoId");
+        var movieInfoIds = request.queryParam("movieInfoIds");
+        var fields = toProjection(request.queryParam("fields").orElse(null));
 
-        if (movieInfoId.isPresent()) {
-            var reviewsFlux = reviewRepository.findReviewsByMovieInfoId(Long.valueOf(movieInfoId.get()));
+        if (movieInfoIds.isPresent()) {
+            var ids = Arrays.stream(movieInfoIds.get().split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .map(ReviewHandler::toMovieInfoId)
+                    .distinct()
+                    .collect(Collectors.toList());
+            var reviewsFlux = fields.isEmpty()
+                    ? reviewRepository.findByMovieInfoIdIn(ids)
+                    : reviewRepository.findProjected(where("movieInfoId").in(ids), Pageable.unpaged(), fields);
             return buildReviewsResponse(reviewsFlux);
+        } else if (movieInfoId.isPresent()) {
+            var id = toMovieInfoId(movieInfoId.get());
+            var reviewsFlux = fields.isEmpty()
+                    ? reviewRepository.findReviewsByMovieInfoId(id)
+                    : reviewRepository.findProjected(where("movieInfoId").is(id), Pageable.unpaged(), fields);
+            return getReviewsConditionally(request, id, fields, reviewsFlux);
         } else {
-            var reviewsFlux = reviewRepository.findAll();
-            return buildReviewsResponse(reviewsFlux);
+            return getReviewsPage(request, fields);
+        }
+    }
+
+    /**
+     * The ETag of a movie's reviews is a digest of its review ids and versions. NDJSON reads stream the reviews
+     * without one, so a movie's reviews are never held in memory; plain JSON reads compute it from the reviews they
+     * return. With If-None-Match an id/version projection is read first, so a match is answered with 304 without
+     * reading or encoding the reviews, and a miss streams the reviews under the projection's tag. A write between
+     * the two reads can only make that tag older than the body, which the next conditional read answers with 200.
+     */
+    private Mono<ServerResponse> getReviewsConditionally(ServerRequest request, Long movieInfoId, Set<String> fields,
+                                                         Flux<Review> reviewsFlux) {
+        var ifNoneMatch = request.headers().firstHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            var streaming = request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+            if (streaming)
+                return buildReviewsResponse(reviewsFlux);
+            return reviewsFlux
+                    .collectList()
+                    .flatMap(reviews -> ServerResponse.ok().eTag(reviewsETag(fields, reviews)).bodyValue(reviews));
+        }
+
+        return reviewRepository.findProjected(where("movieInfoId").is(movieInfoId), Pageable.unpaged(), Set.of("reviewId"))
+                .collectList()
+                .map(versions -> reviewsETag(fields, versions))
+                .flatMap(etag -> ETags.matches(ifNoneMatch, etag)
+                        ? ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).build()
+                        : ServerResponse.ok().eTag(etag).body(reviewsFlux, Review.class));
+    }
+
+    private static String reviewsETag(Set<String> fields, List<Review> reviews) {
+        var parts = new ArrayList<String>();
+        parts.add(String.join(",", new TreeSet<>(fields)));
+        reviews.stream()
+                .map(review -> review.getReviewId() + ":" + review.getVersion())
+                .sorted()
+                .forEach(parts::add);
+        return ETags.digest(parts);
+    }
+
+    /**
+     * Keyset pagination over _id for the unfiltered listing, so deep pages cost the same as the first one.
+     * Per-movie reads above stay unpaginated; NDJSON clients stream them instead.
+     */
+    private Mono<ServerResponse> getReviewsPage(ServerRequest request, Set<String> fields) {
+        var pageSize = request.queryParam("limit")
+                .map(ReviewHandler::toLimit)
+                .map(limit -> Math.min(limit, maxPageSize))
+                .orElse(defaultPageSize);
+        var afterId = request.queryParam("after")
+                .map(ReviewHandler::toAfterId)
+                .orElse(null);
+
+        var pageable = PageRequest.of(0, pageSize + 1, Sort.by("reviewId"));
+
+        // one extra document tells whether there is a next page without a count query
+        return reviewRepository.findPage(afterId, pageable, fields)
+                .collectList()
+                .flatMap(reviews -> {
+                    if (reviews.size() <= pageSize)
+                        return ServerResponse.ok().bodyValue(reviews);
+
+                    var page = reviews.subList(0, pageSize);
+                    var nextCursor = PageCursor.encode(page.get(pageSize - 1).getReviewId());
+                    var nextLink = UriComponentsBuilder.fromPath(request.path())
+                            .queryParam("after", nextCursor)
+                            .queryParam("limit", pageSize)
+                            .queryParamIfPresent("fields", request.queryParam("fields"))
+                            .toUriString();
+
+                    return ServerResponse.ok()
+                            .header(NEXT_CURSOR_HEADER, nextCursor)
+                            .header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"")
+                            .bodyValue(page);
+                });
+    }
+
+    private static int toLimit(String limit) {
+        try {
+            var value = Integer.parseInt(limit);
+            if (value < 1)
+                throw new ReviewDataException("review.limit : must be a positive value");
+            return value;
+        } catch (NumberFormatException e) {
+            throw new ReviewDataException("review.limit : invalid limit " + limit);
+        }
+    }
+
+    private static String toAfterId(String after) {
+        try {
+            return PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ReviewDataException("review.after : invalid cursor " + after);
+        }
+    }
+
+    private static Set<String> toProjection(String fields) {
+        try {
+            return FieldProjection.parse(fields, PROJECTABLE_FIELDS);
+        } catch (IllegalArgumentException e) {
+            throw new ReviewDataException("review.fields : " + e.getMessage());
+        }
+    }
+
+    private static Long toMovieInfoId(String movieInfoId) {
+        try {
+            return Long.valueOf(movieInfoId);
+        } catch (NumberFormatException e) {
+            throw new ReviewDataException("review.movieInfoIds : invalid movieInfoId " + movieInfoId);
         }
     }
 
@@ -80,37 +321,97 @@ public class ReviewHandler {
         return ServerResponse.ok().body(reviewsFlux, Review.class);
     }
 
+    /**
+     * Replaces comment and rating in one atomic write. The expected version comes from If-Match, else from the
+     * body; without either the update is unconditional. A stale version is rejected with 409.
+     */
     public Mono<ServerResponse> updateReview(ServerRequest request) {
+        return request.bodyToMono(Review.class)
+                .flatMap(reqReview -> {
+                    var changes = new LinkedHashMap<String, Object>();
+                    changes.put("comment", reqReview.getComment());
+                    changes.put("rating", reqReview.getRating());
+                    return updateReviewFields(request, reqReview, changes);
+                });
+    }
+
+    /**
+     * Writes only the fields present in the body; absent (null) fields keep their stored value.
+     */
+    public Mono<ServerResponse> patchReview(ServerRequest request) {
+        return request.bodyToMono(Review.class)
+                .flatMap(patch -> {
+                    var changes = new LinkedHashMap<String, Object>();
+                    Optional.ofNullable(patch.getComment()).ifPresent(comment -> changes.put("comment", comment));
+                    Optional.ofNullable(patch.getRating()).ifPresent(rating -> changes.put("rating", rating));
+                    if (changes.isEmpty())
+                        return Mono.error(new ReviewDataException("review : comment or rating must be present"));
+                    return updateReviewFields(request, patch, changes);
+                });
+    }
+
+    private Mono<ServerResponse> updateReviewFields(ServerRequest request, Review reqReview, Map<String, Object> changes) {
         var reviewId = request.pathVariable("id");
-        var existingReview = reviewRepository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id " + reviewId)));
-
-        return existingReview
-            .flatMap(review -> request.bodyToMono(Review.class)
-                .map(reqReview -> {
-                    review.setComment(reqReview.getComment());
-                    review.setRating(reqReview.getRating());
-                    return review;
+        var expectedVersion = toExpectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH), reqReview);
+        validateRating(reqReview);
+
+        return reviewRepository.updateFields(reviewId, expectedVersion, changes)
+                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id " + reviewId)))
+                .flatMap(previousReview -> {
+                    var updatedReview = new Review(previousReview.getReviewId(), previousReview.getMovieInfoId(),
+                            previousReview.getComment(), previousReview.getRating());
+                    if (changes.containsKey("comment"))
+                        updatedReview.setComment(reqReview.getComment());
+                    if (changes.containsKey("rating"))
+                        updatedReview.setRating(reqReview.getRating());
+                    updatedReview.setVersion(previousReview.getVersion() == null ? 1L : previousReview.getVersion() + 1);
+
+                    return reviewSummaryRepository.applyChange(previousReview, updatedReview).thenReturn(updatedReview);
                 })
-                .flatMap(reviewRepository::save)
-                .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
-            );
+                .flatMap(updatedReview -> ServerResponse.ok()
+                        .eTag(ETags.of(updatedReview.getVersion(), Set.of()))
+                        .bodyValue(updatedReview));
+    }
+
+    private void validateRating(Review review) {
+        var errorMessage = ReviewValidator.validateRating(review);
+
+        if (errorMessage != null) {
+            throw new ReviewDataException(errorMessage);
+        }
+    }
+
+    private static Long toExpectedVersion(String ifMatch, Review review) {
+        try {
+            return Optional.ofNullable(ETags.version(ifMatch)).orElse(review.getVersion());
+        } catch (IllegalArgumentException e) {
+            throw new ReviewDataException("review.If-Match : " + e.getMessage());
+        }
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
 
         var reviewId = request.pathVariable("id");
-        var existingReview = reviewRepository.findById(reviewId);
 
-        return existingReview
-                .flatMap(review -> reviewRepository.deleteById(reviewId))
+        // only the delete that actually removed the review folds it out of the summary
+        return reviewRepository.findAndDeleteById(reviewId)
+                .flatMap(review -> reviewSummaryRepository.applyChange(review, null))
                 .then(ServerResponse.noContent().build());
     }
 
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId")
+                .map(ReviewHandler::toMovieInfoId)
+                .orElseThrow(() -> new ReviewDataException("review.movieInfoId : must not be null"));
+
+        return reviewSummaryRepository.findById(movieInfoId)
+                .defaultIfEmpty(new ReviewSummary(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewsSink.asFlux(), Review.class)
-                .log();
+                .body(reviewEventBroadcaster.asFlux().transform(getReviewsStreamTracing.flux()), Review.class);
     }
 }
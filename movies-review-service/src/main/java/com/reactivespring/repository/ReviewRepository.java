@@ -4,6 +4,10 @@ import com.reactivespring.domain.Review;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface ReviewRepository extends ReactiveMongoRepository<Review, String> {
+import java.util.List;
+
+public interface ReviewRepository extends ReactiveMongoRepository<Review, String>, ReviewRepositoryCustom {
     Flux<Review> findReviewsByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findByMovieInfoIdIn(List<Long> movieInfoIds);
 }
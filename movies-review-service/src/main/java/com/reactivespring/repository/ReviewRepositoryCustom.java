@@ -0,0 +1,51 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface ReviewRepositoryCustom {
+
+    /**
+     * Runs the query with a Mongo projection, so only the requested fields (and the id) leave the database.
+     */
+    Flux<Review> findProjected(Criteria criteria, Pageable pageable, Set<String> fields);
+
+    /**
+     * Keyset page in id order: the reviews after {@code afterId} (from the start when null), projected to
+     * {@code fields} unless it is empty. Client supplied String ids sort before generated ObjectIds and $gt only
+     * compares ids of one BSON type, so a page ending on a String id continues with the ObjectIds.
+     */
+    Flux<Review> findPage(String afterId, Pageable pageable, Set<String> fields);
+
+    /**
+     * Inserts the batch with one unordered bulkWrite; every review must carry its id.
+     *
+     * @return the write error message by position in the batch, empty when every record was written
+     */
+    Mono<Map<Integer, String>> bulkInsert(List<Review> reviews);
+
+    /**
+     * Applies {@code changes} with $set and increments the version in one findAndModify, so concurrent writers
+     * cannot lose each other's updates.
+     *
+     * @param expectedVersion when not null, the update only applies to that version of the review
+     * @return the review as it was before the update, empty when there is no review with that id
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the review has another version
+     */
+    Mono<Review> updateFields(String id, Long expectedVersion, Map<String, Object> changes);
+
+    /**
+     * Removes the review with one findAndRemove, so of several concurrent deletes of the same review only one
+     * gets it back.
+     *
+     * @return the removed review, empty when there was no review with that id
+     */
+    Mono<Review> findAndDeleteById(String id);
+}
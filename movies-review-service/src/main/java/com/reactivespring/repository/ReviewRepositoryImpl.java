@@ -0,0 +1,112 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.reactivespring.domain.Review;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class ReviewRepositoryImpl implements ReviewRepositoryCustom {
+
+    private static final int OBJECT_ID_BSON_TYPE = 7;
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewRepositoryImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> findProjected(Criteria criteria, Pageable pageable, Set<String> fields) {
+        var query = Query.query(criteria).with(pageable);
+        fields.forEach(query.fields()::include);
+        query.fields().include("version");
+
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    @Override
+    public Flux<Review> findPage(String afterId, Pageable pageable, Set<String> fields) {
+        var criteria = afterId == null ? new Criteria() : afterIdCriteria(afterId);
+        if (!fields.isEmpty()) {
+            return findProjected(criteria, pageable, fields);
+        }
+        return reactiveMongoTemplate.find(Query.query(criteria).with(pageable), Review.class);
+    }
+
+    private static Criteria afterIdCriteria(String afterId) {
+        // ids that are valid ObjectIds are stored (and queried) as ObjectIds, all others as Strings
+        if (ObjectId.isValid(afterId)) {
+            return where("reviewId").gt(afterId);
+        }
+        return new Criteria().orOperator(
+                where("reviewId").gt(afterId),
+                where("reviewId").type(OBJECT_ID_BSON_TYPE));
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> bulkInsert(List<Review> reviews) {
+        var converter = reactiveMongoTemplate.getConverter();
+        var models = reviews.stream()
+                .<WriteModel<Document>>map(review -> {
+                    var document = new Document();
+                    converter.write(review, document);
+                    document.putIfAbsent("version", 0L);
+                    return new InsertOneModel<>(document);
+                })
+                .collect(Collectors.toList());
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .map(bulkWriteResult -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))));
+    }
+
+    @Override
+    public Mono<Review> updateFields(String id, Long expectedVersion, Map<String, Object> changes) {
+        var criteria = where("reviewId").is(id);
+        if (expectedVersion != null) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        var update = new Update();
+        changes.forEach(update::set);
+        update.inc("version", 1);
+
+        // the previous state is what the review summary needs to apply the change
+        return reactiveMongoTemplate.findAndModify(Query.query(criteria), update,
+                        FindAndModifyOptions.options().returnNew(false), Review.class)
+                // no match on a versioned update is either a missing review or a stale version
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null
+                        ? Mono.empty()
+                        : reactiveMongoTemplate.exists(Query.query(where("reviewId").is(id)), Review.class)
+                        .flatMap(exists -> exists
+                                ? Mono.error(new OptimisticLockingFailureException(
+                                "review " + id + " is no longer at version " + expectedVersion))
+                                : Mono.empty())));
+    }
+
+    @Override
+    public Mono<Review> findAndDeleteById(String id) {
+        return reactiveMongoTemplate.findAndRemove(Query.query(where("reviewId").is(id)), Review.class);
+    }
+}
@@ -0,0 +1,58 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Builds the review summaries once the application is ready when there are reviews but no summaries yet,
+ * i.e. on the first start against reviews written before the summaries existed. Later drift is repaired with
+ * {@code POST /actuator/reviewsummaries}.
+ */
+@Component
+@Slf4j
+public class ReviewSummaryBackfill {
+
+    @Value("${reviewSummary.backfillOnStartup:true}")
+    private boolean backfillOnStartup;
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+    private ReviewSummaryRepository reviewSummaryRepository;
+    private Disposable backfill;
+
+    public ReviewSummaryBackfill(ReactiveMongoTemplate reactiveMongoTemplate, ReviewSummaryRepository reviewSummaryRepository) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.reviewSummaryRepository = reviewSummaryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!backfillOnStartup) {
+            return;
+        }
+
+        backfill = Mono.zip(reactiveMongoTemplate.exists(new Query(), Review.class),
+                        reactiveMongoTemplate.exists(new Query(), ReviewSummary.class))
+                .filter(exists -> exists.getT1() && !exists.getT2())
+                .flatMap(exists -> reviewSummaryRepository.rebuild())
+                .subscribe(count -> log.info("Backfilled {} review summaries", count),
+                        ex -> log.error("Review summary backfill failed : {}", ex.getMessage(), ex));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (backfill != null) {
+            backfill.dispose();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.reactivespring.repository;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/reviewsummaries} rebuilds every review summary from the reviews and answers with the
+ * number of summaries written.
+ */
+@Component
+@Endpoint(id = "reviewsummaries")
+public class ReviewSummaryEndpoint {
+
+    private final ReviewSummaryRepository reviewSummaryRepository;
+
+    public ReviewSummaryEndpoint(ReviewSummaryRepository reviewSummaryRepository) {
+        this.reviewSummaryRepository = reviewSummaryRepository;
+    }
+
+    @WriteOperation
+    public Mono<Map<String, Long>> rebuild() {
+        return reviewSummaryRepository.rebuild()
+                .map(count -> Map.of("rebuilt", count));
+    }
+}
@@ -0,0 +1,29 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReviewSummaryRepositoryCustom {
+
+    /**
+     * Folds a review write into the summary of its movie: {@code before} is null for an insert,
+     * {@code after} is null for a delete.
+     */
+    Mono<Void> applyChange(Review before, Review after);
+
+    /**
+     * Folds a batch of inserted reviews into the summaries with one $inc upsert per movie.
+     */
+    Mono<Void> applyInserts(List<Review> reviews);
+
+    /**
+     * Recomputes every summary from the reviews with one $group aggregation and drops the summaries of movies
+     * without reviews, for reviews written before the summaries existed or without going through the folds above.
+     * Writes to a movie's reviews while its summary is rebuilt may be lost from or counted twice in it.
+     *
+     * @return the number of summaries written
+     */
+    Mono<Long> rebuild();
+}
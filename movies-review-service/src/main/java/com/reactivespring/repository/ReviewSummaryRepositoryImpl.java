@@ -0,0 +1,136 @@
+package com.reactivespring.repository;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ReviewSummaryRepositoryImpl implements ReviewSummaryRepositoryCustom {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // per (movie, rating bucket) first, then per movie; null buckets are the unrated reviews
+    private static final List<Document> REBUILD_PIPELINE = List.of(
+            new Document("$match", new Document("movieInfoId", new Document("$ne", null))),
+            new Document("$group", new Document("_id", new Document("movieInfoId", "$movieInfoId")
+                    .append("bucket", new Document("$toString", new Document("$toLong", new Document("$floor", "$rating")))))
+                    .append("count", new Document("$sum", 1L))
+                    .append("ratingSum", new Document("$sum", "$rating"))),
+            new Document("$group", new Document("_id", "$_id.movieInfoId")
+                    .append("count", new Document("$sum", "$count"))
+                    .append("ratedCount", new Document("$sum", new Document("$cond",
+                            List.of(new Document("$gt", Arrays.asList("$_id.bucket", null)), "$count", 0L))))
+                    .append("ratingSum", new Document("$sum", "$ratingSum"))
+                    .append("buckets", new Document("$push", new Document("k", "$_id.bucket").append("v", "$count")))),
+            new Document("$project", new Document("count", 1)
+                    .append("ratedCount", 1)
+                    .append("ratingSum", new Document("$toDouble", "$ratingSum"))
+                    .append("histogram", new Document("$arrayToObject", new Document("$filter",
+                            new Document("input", "$buckets")
+                                    .append("cond", new Document("$gt", Arrays.asList("$$this.k", null))))))));
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewSummaryRepositoryImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<Void> applyChange(Review before, Review after) {
+        var movieInfoId = after != null ? after.getMovieInfoId() : before.getMovieInfoId();
+        // deltas are summed first, a rating update that stays in the same bucket would otherwise set $inc twice
+        var deltas = new LinkedHashMap<String, Number>();
+        if (before != null) {
+            addDeltas(deltas, before, -1);
+        }
+        if (after != null) {
+            addDeltas(deltas, after, 1);
+        }
+
+        return upsert(movieInfoId, deltas);
+    }
+
+    @Override
+    public Mono<Void> applyInserts(List<Review> reviews) {
+        var deltasByMovieInfoId = new LinkedHashMap<Long, Map<String, Number>>();
+        reviews.forEach(review -> addDeltas(
+                deltasByMovieInfoId.computeIfAbsent(review.getMovieInfoId(), movieInfoId -> new LinkedHashMap<>()), review, 1));
+
+        return Flux.fromIterable(deltasByMovieInfoId.entrySet())
+                .flatMap(entry -> upsert(entry.getKey(), entry.getValue()))
+                .then();
+    }
+
+    @Override
+    public Mono<Long> rebuild() {
+        var summaryCollection = reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(ReviewSummary.class));
+        var rebuiltIds = new HashSet<Object>();
+
+        var written = reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMapMany(collection -> collection.aggregate(REBUILD_PIPELINE).allowDiskUse(true))
+                .buffer(REBUILD_BATCH_SIZE)
+                .concatMap(summaries -> {
+                    var models = summaries.stream()
+                            .<WriteModel<Document>>map(summary -> new ReplaceOneModel<>(Filters.eq("_id", summary.get("_id")),
+                                    summary, new ReplaceOptions().upsert(true)))
+                            .collect(Collectors.toList());
+                    summaries.forEach(summary -> rebuiltIds.add(summary.get("_id")));
+                    return summaryCollection.flatMap(collection ->
+                                    Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                            .thenReturn((long) summaries.size());
+                })
+                .reduce(0L, Long::sum);
+
+        return written.flatMap(count -> summaryCollection
+                .flatMapMany(collection -> collection.find().projection(new Document("_id", 1)))
+                .map(summary -> summary.get("_id"))
+                .filter(movieInfoId -> !rebuiltIds.contains(movieInfoId))
+                .buffer(REBUILD_BATCH_SIZE)
+                .concatMap(staleIds -> summaryCollection.flatMap(collection ->
+                        Mono.from(collection.deleteMany(Filters.in("_id", staleIds)))))
+                .then(Mono.just(count)));
+    }
+
+    private Mono<Void> upsert(Long movieInfoId, Map<String, Number> deltas) {
+        var update = new Update();
+        deltas.forEach(update::inc);
+
+        return reactiveMongoTemplate.upsert(query(where("movieInfoId").is(movieInfoId)), update, ReviewSummary.class)
+                .then();
+    }
+
+    private static void addDeltas(Map<String, Number> deltas, Review review, int sign) {
+        deltas.merge("count", (long) sign, ReviewSummaryRepositoryImpl::sum);
+        if (review.getRating() == null) {
+            return;
+        }
+        deltas.merge("ratedCount", (long) sign, ReviewSummaryRepositoryImpl::sum);
+        deltas.merge("ratingSum", sign * review.getRating(), ReviewSummaryRepositoryImpl::sum);
+        deltas.merge("histogram." + (long) Math.floor(review.getRating()), (long) sign, ReviewSummaryRepositoryImpl::sum);
+    }
+
+    private static Number sum(Number left, Number right) {
+        if (left instanceof Double || right instanceof Double) {
+            return left.doubleValue() + right.doubleValue();
+        }
+        return left.longValue() + right.longValue();
+    }
+}
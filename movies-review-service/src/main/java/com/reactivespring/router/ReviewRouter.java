@@ -17,8 +17,11 @@ public class ReviewRouter {
         return route()
                 .nest(path("/v1/reviews"), builder -> {
                     builder.POST("", request -> reviewHandler.addReview(request))
+                            .POST("/bulk", request -> reviewHandler.bulkAddReviews(request))
                             .GET("", request -> reviewHandler.getReviews(request))
+                            .GET("/summary", request -> reviewHandler.getReviewSummary(request))
                             .PUT("/{id}", request -> reviewHandler.updateReview(request))
+                            .PATCH("/{id}", request -> reviewHandler.patchReview(request))
                             .DELETE("/{id}", request -> reviewHandler.deleteReview(request))
                             .GET(("/stream"), request -> reviewHandler.getReviewsStream(request));
                 })
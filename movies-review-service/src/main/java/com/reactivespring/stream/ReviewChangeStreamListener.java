@@ -0,0 +1,27 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds /v1/reviews/stream from the review collection's change stream. Deletes are published as a Review that only
+ * carries its reviewId.
+ */
+@Component
+public class ReviewChangeStreamListener extends ChangeStreamListener<Review> {
+
+    public ReviewChangeStreamListener(ReactiveMongoTemplate reactiveMongoTemplate,
+                                      EventBroadcaster<Review> reviewEventBroadcaster,
+                                      StreamProperties streamProperties) {
+        super("review", Review.class, ReviewChangeStreamListener::tombstone, reactiveMongoTemplate,
+                new ResumeTokenStore(reactiveMongoTemplate, streamProperties), reviewEventBroadcaster,
+                streamProperties);
+    }
+
+    private static Review tombstone(String reviewId) {
+        var tombstone = new Review();
+        tombstone.setReviewId(reviewId);
+        return tombstone;
+    }
+}
@@ -0,0 +1,16 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StreamProperties.class)
+public class StreamConfiguration {
+
+    @Bean
+    public EventBroadcaster<Review> reviewEventBroadcaster(StreamProperties streamProperties) {
+        return new EventBroadcaster<>("reviews", streamProperties);
+    }
+}
@@ -0,0 +1,45 @@
+package com.reactivespring.validator;
+
+import com.reactivespring.domain.Review;
+
+/**
+ * Checks the constraints declared on {@link Review} without going through the Bean Validation engine.
+ * The messages and their order are the ones Bean Validation reports (sorted, comma joined), and nothing is
+ * allocated for a valid review. Keep it in step with the annotations on {@link Review}.
+ */
+public class ReviewValidator {
+
+    static final String MOVIE_INFO_ID_NOT_NULL = "review.movieInfoId : must not be null";
+    static final String RATING_NON_NEGATIVE = "review.rating : please pass a non-negative value";
+
+    private ReviewValidator() {
+    }
+
+    /**
+     * @return the sorted, comma joined constraint violation messages, or null when the review is valid
+     */
+    public static String validate(Review review) {
+        var movieInfoIdValid = review.getMovieInfoId() != null;
+        var ratingValid = isNonNegative(review.getRating());
+
+        if (movieInfoIdValid && ratingValid) {
+            return null;
+        }
+        if (!movieInfoIdValid && !ratingValid) {
+            return MOVIE_INFO_ID_NOT_NULL + ", " + RATING_NON_NEGATIVE;
+        }
+        return movieInfoIdValid ? RATING_NON_NEGATIVE : MOVIE_INFO_ID_NOT_NULL;
+    }
+
+    /**
+     * Same as {@link #validate} restricted to the rating, for updates that leave the movieInfoId untouched.
+     */
+    public static String validateRating(Review review) {
+        return isNonNegative(review.getRating()) ? null : RATING_NON_NEGATIVE;
+    }
+
+    // @Min(0) semantics: null is valid, NaN and -0.0 are not
+    private static boolean isNonNegative(Double rating) {
+        return rating == null || (!rating.isNaN() && Double.compare(rating, 0.0d) >= 0);
+    }
+}
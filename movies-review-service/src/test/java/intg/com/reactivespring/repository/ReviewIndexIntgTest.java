@@ -0,0 +1,97 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({RepositoryConfiguration.class, QueryPlanRecorder.class})
+public class ReviewIndexIntgTest {
+
+    @Autowired
+    ReviewRepository reviewRepository;
+
+    @Autowired
+    IndexReconciler indexReconciler;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    QueryPlanRecorder queryPlanRecorder;
+
+    @BeforeEach
+    void setUp() {
+        var reviewsList = List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 1L, "Awesome Movie1", 9.0),
+                new Review(null, 2L, "Excellent Movie", 8.0));
+        reviewRepository.saveAll(reviewsList)
+                .blockLast();
+        indexReconciler.reconcile().block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewRepository.deleteAll().block();
+    }
+
+    @Test
+    void findReviewsByMovieInfoId_usesIndex() {
+        //when
+        var winningPlan = queryPlanRecorder.winningPlan(reactiveMongoTemplate,
+                reviewRepository.findReviewsByMovieInfoId(1L));
+
+        //then
+        assertTrue(winningPlan.contains("IXSCAN"), winningPlan);
+    }
+
+    @Test
+    void findByMovieInfoIdIn_usesIndex() {
+        //when
+        var winningPlan = queryPlanRecorder.winningPlan(reactiveMongoTemplate,
+                reviewRepository.findByMovieInfoIdIn(List.of(1L, 2L)));
+
+        //then
+        assertTrue(winningPlan.contains("IXSCAN"), winningPlan);
+    }
+
+    @Test
+    void findProjectedByMovieInfoId_usesIndex() {
+        //when
+        var winningPlan = queryPlanRecorder.winningPlan(reactiveMongoTemplate,
+                reviewRepository.findProjected(where("movieInfoId").is(1L), Pageable.unpaged(), Set.of("reviewId")));
+
+        //then
+        assertTrue(winningPlan.contains("IXSCAN"), winningPlan);
+    }
+
+    @Test
+    void findProjectedByMovieInfoIdSortedByRating_usesIndexWithoutSort() {
+        //when
+        var winningPlan = queryPlanRecorder.winningPlan(reactiveMongoTemplate,
+                reviewRepository.findProjected(where("movieInfoId").is(1L),
+                        PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "rating")), Set.of("rating")));
+
+        //then
+        assertTrue(winningPlan.contains("IXSCAN"), winningPlan);
+        assertFalse(winningPlan.contains("\"SORT\""), winningPlan);
+    }
+}
@@ -1,18 +1,35 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.BulkResult;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -26,6 +43,9 @@ public class ReviewsIntgTest {
     @Autowired
     ReviewRepository reviewRepository;
 
+    @Autowired
+    ReviewSummaryRepository reviewSummaryRepository;
+
     @BeforeEach
     void setUp() {
         var reviewsList = List.of(
@@ -39,6 +59,7 @@ public class ReviewsIntgTest {
     @AfterEach
     void afterAll() {
         reviewRepository.deleteAll().block();
+        reviewSummaryRepository.deleteAll().block();
     }
 
     @Test
@@ -72,6 +93,105 @@ public class ReviewsIntgTest {
 
     }
 
+    @Test
+    void getReviews_paginated() {
+        //given
+
+        //when
+        var firstPage = webTestClient
+                .get()
+                .uri("/v1/reviews?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().exists(HttpHeaders.LINK)
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .returnResult();
+
+        //then
+        var nextCursor = firstPage.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        assertNotNull(nextCursor);
+
+        webTestClient
+                .get()
+                .uri("/v1/reviews?limit=2&after={after}", nextCursor)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
+                .expectBodyList(Review.class)
+                .hasSize(1);
+    }
+
+    @Test
+    void getReviews_paginated_acrossIdTypes() {
+        //given
+        // a client supplied String id sorts before the generated ObjectIds, so the first page ends on the type change
+        reviewRepository.save(new Review("abc", 3L, "Good Movie", 7.0)).block();
+        var reviewIds = new ArrayList<String>();
+
+        //when
+        var firstPage = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?limit=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .returnResult();
+        reviewIds.add(firstPage.getResponseBody().get(0).getReviewId());
+        var nextCursor = firstPage.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+
+        while (nextCursor != null && reviewIds.size() < 10) {
+            var page = webTestClient
+                    .get()
+                    .uri(REVIEWS_URL + "?limit=1&after={after}", nextCursor)
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(Review.class)
+                    .hasSize(1)
+                    .returnResult();
+            reviewIds.add(page.getResponseBody().get(0).getReviewId());
+            nextCursor = page.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        }
+
+        //then
+        assertEquals("abc", reviewIds.get(0));
+        assertEquals(4, reviewIds.size());
+        assertEquals(4, new HashSet<>(reviewIds).size());
+    }
+
+    @Test
+    void getReviewsByMovieInfoId_projected() {
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&fields=rating")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].reviewId").exists()
+                .jsonPath("$[0].rating").isEqualTo(9.0)
+                .jsonPath("$[0].comment").doesNotExist()
+                .jsonPath("$[0].movieInfoId").doesNotExist();
+    }
+
+    @Test
+    void getReviews_unknownField() {
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?fields=rating,author")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getReviewsByMovieInfoId() {
         //given
@@ -95,6 +215,87 @@ public class ReviewsIntgTest {
 
     }
 
+    @Test
+    void getReviewsByMovieInfoId_notModified() {
+        //given
+        var etag = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        //then
+        reviewRepository.save(new Review(null, 1L, "Average Movie", 5.0)).block();
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviewsByMovieInfoId_ndjson() {
+        //when
+        var result = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class);
+
+        //then
+        // streamed as read, the reviews are not collected to compute a tag
+        assertNull(result.getResponseHeaders().getETag());
+        StepVerifier.create(result.getResponseBody())
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds() {
+        //given
+
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path("/v1/reviews")
+                            .queryParam("movieInfoIds", "1,2,3")
+                            .build();
+                })
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .value(reviewList -> {
+                    assertEquals(3, reviewList.size());
+                });
+
+    }
+
     @Test
     void addReview() {
         //given
@@ -115,6 +316,166 @@ public class ReviewsIntgTest {
 
     }
 
+    @Test
+    void getReviewSummary_followsWrites() {
+        //given
+        var added = new ArrayList<Review>();
+        for (var review : List.of(new Review(null, 3L, "Awesome Movie", 9.0),
+                new Review(null, 3L, "Good Movie", 7.5),
+                new Review(null, 3L, "Bad Movie", 2.0))) {
+            added.add(webTestClient.post()
+                    .uri(REVIEWS_URL)
+                    .bodyValue(review)
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectBody(Review.class)
+                    .returnResult()
+                    .getResponseBody());
+        }
+
+        //when
+        webTestClient.put()
+                .uri(REVIEWS_URL + "/{id}", added.get(1).getReviewId())
+                .bodyValue(new Review(null, 3L, "Great Movie", 8.0))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete()
+                .uri(REVIEWS_URL + "/{id}", added.get(2).getReviewId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        //then
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReviewSummary.class)
+                .value(summary -> {
+                    assertEquals(2, summary.getCount());
+                    assertEquals(8.5, summary.getAverage());
+                    assertEquals(1L, summary.getHistogram().get("9"));
+                    assertEquals(1L, summary.getHistogram().get("8"));
+                    assertEquals(0L, summary.getHistogram().get("7"));
+                });
+    }
+
+    @Test
+    void deleteReview_concurrentDeletesFoldOnce() {
+        //given
+        var added = new ArrayList<Review>();
+        for (var review : List.of(new Review(null, 5L, "Awesome Movie", 9.0),
+                new Review(null, 5L, "Good Movie", 7.0))) {
+            added.add(webTestClient.post()
+                    .uri(REVIEWS_URL)
+                    .bodyValue(review)
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectBody(Review.class)
+                    .returnResult()
+                    .getResponseBody());
+        }
+
+        //when
+        Flux.range(0, 4)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .map(i -> webTestClient.delete()
+                        .uri(REVIEWS_URL + "/{id}", added.get(0).getReviewId())
+                        .exchange()
+                        .expectStatus().isNoContent())
+                .sequential()
+                .blockLast();
+
+        //then
+        StepVerifier.create(reviewSummaryRepository.findById(5L))
+                .assertNext(summary -> {
+                    assertEquals(1, summary.getCount());
+                    assertEquals(7.0, summary.getAverage());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void rebuildReviewSummaries() {
+        //given
+        // setUp seeds movies 1 and 2 with saveAll, which bypasses the summaries; movie 9 has a stale summary
+        reviewRepository.save(new Review(null, 1L, "Unrated", null)).block();
+        reviewSummaryRepository.save(new ReviewSummary(9L, 3L, 3L, 27.0, Map.of("9", 3L))).block();
+
+        //when
+        StepVerifier.create(reviewSummaryRepository.rebuild())
+                .expectNext(2L)
+                .verifyComplete();
+
+        //then
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReviewSummary.class)
+                .value(summary -> {
+                    assertEquals(3, summary.getCount());
+                    assertEquals(2, summary.getRatedCount());
+                    assertEquals(9.0, summary.getAverage());
+                    assertEquals(2L, summary.getHistogram().get("9"));
+                });
+        StepVerifier.create(reviewSummaryRepository.findById(2L))
+                .assertNext(summary -> {
+                    assertEquals(1, summary.getCount());
+                    assertEquals(8.0, summary.getAverage());
+                    assertEquals(Map.of("8", 1L), summary.getHistogram());
+                })
+                .verifyComplete();
+        StepVerifier.create(reviewSummaryRepository.findById(9L))
+                .verifyComplete();
+    }
+
+    @Test
+    void bulkAddReviews() {
+        //given
+        var reviews = Flux.just(
+                new Review(null, 4L, "Awesome Movie", 9.0),
+                new Review(null, null, "Invalid Review", -1.0),
+                new Review(null, 4L, "Good Movie", 7.0));
+
+        //when
+        var results = webTestClient.post()
+                .uri(REVIEWS_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(reviews, Review.class)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BulkResult.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(results)
+                .assertNext(result -> assertTrue(result.isSuccess()))
+                .assertNext(result -> {
+                    assertEquals(1, result.getIndex());
+                    assertFalse(result.isSuccess());
+                    assertEquals("review.movieInfoId : must not be null, review.rating : please pass a non-negative value",
+                            result.getError());
+                })
+                .assertNext(result -> {
+                    assertEquals(2, result.getIndex());
+                    assertTrue(result.isSuccess());
+                    assertNotNull(result.getId());
+                })
+                .verifyComplete();
+
+        StepVerifier.create(reviewRepository.findReviewsByMovieInfoId(4L))
+                .expectNextCount(2)
+                .verifyComplete();
+        StepVerifier.create(reviewSummaryRepository.findById(4L))
+                .assertNext(summary -> {
+                    assertEquals(2, summary.getCount());
+                    assertEquals(8.0, summary.getAverage());
+                })
+                .verifyComplete();
+    }
+
     @Test
     void updateReview() {
         //given
@@ -142,6 +503,47 @@ public class ReviewsIntgTest {
 
     }
 
+    @Test
+    void patchReview() {
+        //given
+        var savedReview = reviewRepository.save(new Review(null, 1L, "Awesome Movie", 9.0)).block();
+        assert savedReview != null;
+        var reviewPatch = new Review(null, null, null, 7.0);
+
+        //when
+        webTestClient
+                .patch()
+                .uri("/v1/reviews/{id}", savedReview.getReviewId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(reviewPatch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody(Review.class)
+                .consumeWith(reviewResponse -> {
+                    var patchedReview = reviewResponse.getResponseBody();
+                    assert patchedReview != null;
+                    assertEquals(7.0, patchedReview.getRating());
+                    assertEquals("Awesome Movie", patchedReview.getComment());
+                });
+
+        //then
+        webTestClient
+                .patch()
+                .uri("/v1/reviews/{id}", savedReview.getReviewId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(reviewPatch)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        StepVerifier.create(reviewRepository.findById(savedReview.getReviewId()))
+                .assertNext(review -> {
+                    assertEquals(7.0, review.getRating());
+                    assertEquals(1L, review.getVersion());
+                })
+                .verifyComplete();
+    }
+
     @Test
     void updateReview_NotFound() {
         //given
@@ -194,4 +596,31 @@ public class ReviewsIntgTest {
                 .is5xxServerError();
 
     }
+
+    @Test
+    void getReviewsStream_carriesUpdates() {
+        //given
+        var savedReview = reviewRepository.save(new Review(null, 1L, "Awesome Movie", 9.0)).block();
+        assert savedReview != null;
+
+        var updatesFlux = webTestClient
+                .get()
+                .uri("/v1/reviews/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(Review.class)
+                .getResponseBody()
+                .filter(review -> "Updated Movie".equals(review.getComment()));
+
+        //when
+        StepVerifier.create(updatesFlux)
+                .then(() -> {
+                    savedReview.setComment("Updated Movie");
+                    reviewRepository.save(savedReview).block();
+                })
+                .assertNext(review -> assertEquals(savedReview.getReviewId(), review.getReviewId()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
 }
@@ -1,34 +1,47 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewRepository;
+import com.reactivespring.repository.ReviewSummaryRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.stream.StreamConfiguration;
+import com.reactivespring.tracing.SignalTracing;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.*;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, StreamConfiguration.class,
+        SignalTracing.class})
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
 
     @MockBean
     private ReviewRepository reviewRepository;
 
+    @MockBean
+    private ReviewSummaryRepository reviewSummaryRepository;
+
 //    @MockBean
 //    private ReviewValidator reviewValidator;
 
@@ -43,7 +56,7 @@ public class ReviewsUnitTest {
                 new Review(null, 1L, "Awesome Movie1", 9.0),
                 new Review(null, 2L, "Excellent Movie", 8.0));
 
-        when(reviewRepository.findAll()).thenReturn(Flux.fromIterable(reviewList));
+        when(reviewRepository.findPage(isNull(), isA(Pageable.class), anySet())).thenReturn(Flux.fromIterable(reviewList));
 //        doCallRealMethod().when(reviewValidator).validate(any(), any());
 
         //when
@@ -66,6 +79,7 @@ public class ReviewsUnitTest {
         var review = new Review(null, 1L, "Awesome Movie", 9.0);
 
         when(reviewRepository.save(isA(Review.class))).thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(reviewSummaryRepository.applyChange(isNull(), isA(Review.class))).thenReturn(Mono.empty());
 //        doCallRealMethod().when(reviewValidator).validate(any(), any());
         //when
         webTestClient
@@ -107,8 +121,8 @@ public class ReviewsUnitTest {
 
         var reviewUpdate = new Review(null, 1L, "Not an Awesome Movie", 8.0);
 
-        when(reviewRepository.save(isA(Review.class))).thenReturn(Mono.just(new Review("abc", 1L, "Not an Awesome Movie", 8.0)));
-        when(reviewRepository.findById((String) any())).thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(reviewRepository.updateFields(eq("abc"), isNull(), anyMap())).thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(reviewSummaryRepository.applyChange(isA(Review.class), isA(Review.class))).thenReturn(Mono.empty());
 //        doCallRealMethod().when(reviewValidator).validate(any(), any());
         //when
 
@@ -130,12 +144,45 @@ public class ReviewsUnitTest {
 
     }
 
+    @Test
+    void patchReview_versionConflict() {
+        //given
+        var reviewPatch = new Review(null, null, null, 7.0);
+        when(reviewRepository.updateFields(eq("abc"), eq(2L), eq(Map.of("rating", 7.0))))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("review abc is no longer at version 2")));
+
+        //when
+        webTestClient
+                .patch()
+                .uri("/v1/reviews/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .bodyValue(reviewPatch)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void patchReview_negativeRating() {
+        //given
+        var reviewPatch = new Review(null, null, null, -7.0);
+
+        //when
+        webTestClient
+                .patch()
+                .uri("/v1/reviews/{id}", "abc")
+                .bodyValue(reviewPatch)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("review.rating : please pass a non-negative value");
+    }
+
     @Test
     void deleteReview() {
         //given
         var reviewId= "abc";
-        when(reviewRepository.findById((String) any())).thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
-        when(reviewRepository.deleteById((String) any())).thenReturn(Mono.empty());
+        when(reviewRepository.findAndDeleteById((String) any())).thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(reviewSummaryRepository.applyChange(isA(Review.class), isNull())).thenReturn(Mono.empty());
 //        doCallRealMethod().when(reviewValidator).validate(any(), any());
 
         //when
@@ -146,5 +193,47 @@ public class ReviewsUnitTest {
                 .expectStatus().isNoContent();
     }
 
+    @Test
+    void getReviewSummary() {
+        //given
+        var summary = new ReviewSummary(1L, 2L, 2L, 17.0, Map.of("8", 1L, "9", 1L));
+        when(reviewSummaryRepository.findById(1L)).thenReturn(Mono.just(summary));
 
-}
\ No newline at end of file
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/reviews/summary?movieInfoId={movieInfoId}", 1L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.average").isEqualTo(8.5)
+                .jsonPath("$.histogram.9").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewSummary_noReviews() {
+        //given
+        when(reviewSummaryRepository.findById(2L)).thenReturn(Mono.empty());
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/reviews/summary?movieInfoId={movieInfoId}", 2L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.average").doesNotExist();
+    }
+
+    @Test
+    void getReviewSummary_missingMovieInfoId() {
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/reviews/summary")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,75 @@
+package com.reactivespring.validator;
+
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReviewValidatorTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void validate_validReview() {
+        //given
+        var review = new Review(null, 1L, "Awesome Movie", 9.0);
+
+        //when
+        var errorMessage = ReviewValidator.validate(review);
+
+        //then
+        assertNull(errorMessage);
+    }
+
+    @Test
+    void validate_bothConstraintsViolated() {
+        //given
+        var review = new Review(null, null, "Awesome Movie", -9.0);
+
+        //when
+        var errorMessage = ReviewValidator.validate(review);
+
+        //then
+        assertEquals("review.movieInfoId : must not be null, review.rating : please pass a non-negative value", errorMessage);
+    }
+
+    @Test
+    void validate_matchesBeanValidation() {
+        //given
+        var movieInfoIds = new Long[]{null, 1L};
+        var ratings = new Double[]{null, 0.0, -0.0, 9.0, -9.0, Double.MIN_VALUE, -Double.MIN_VALUE,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN};
+
+        for (var movieInfoId : movieInfoIds) {
+            for (var rating : ratings) {
+                var review = new Review(null, movieInfoId, "Awesome Movie", rating);
+
+                //when
+                var errorMessage = ReviewValidator.validate(review);
+                var ratingErrorMessage = ReviewValidator.validateRating(review);
+
+                //then
+                assertEquals(beanValidationErrors(validator.validate(review)), errorMessage, review.toString());
+                assertEquals(beanValidationErrors(validator.validateProperty(review, "rating")), ratingErrorMessage,
+                        review.toString());
+            }
+        }
+    }
+
+    private static String beanValidationErrors(Set<ConstraintViolation<Review>> constraintViolations) {
+        if (constraintViolations.isEmpty()) {
+            return null;
+        }
+        return constraintViolations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
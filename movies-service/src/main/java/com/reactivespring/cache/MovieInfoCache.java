@@ -0,0 +1,75 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.domain.MovieInfo;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-evicting async cache for movie infos.
+ * Concurrent misses for the same id share one in-flight load; failed or empty loads are not cached.
+ * Entries past refreshAfterWrite keep being served while the reloader revalidates them in the background;
+ * a failed reload keeps the old entry until it expires.
+ */
+public class MovieInfoCache {
+
+    private final AsyncLoadingCache<String, MovieInfo> cache;
+    private final Function<String, Mono<MovieInfo>> loader;
+
+    public MovieInfoCache(RestClientProperties.Cache properties, Function<String, Mono<MovieInfo>> loader) {
+        this(properties, loader, (movieId, cached) -> loader.apply(movieId));
+    }
+
+    /**
+     * @param reloader receives the cached movie info, so it can revalidate it instead of fetching it again
+     */
+    public MovieInfoCache(RestClientProperties.Cache properties, Function<String, Mono<MovieInfo>> loader,
+                          BiFunction<String, MovieInfo, Mono<MovieInfo>> reloader) {
+        this.loader = loader;
+        var builder = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats();
+        if (properties.getRefreshAfterWrite() != null) {
+            builder.refreshAfterWrite(properties.getRefreshAfterWrite());
+        }
+        this.cache = builder.buildAsync(new AsyncCacheLoader<String, MovieInfo>() {
+            @Override
+            public CompletableFuture<MovieInfo> asyncLoad(String movieId, Executor executor) {
+                return loader.apply(movieId).toFuture();
+            }
+
+            @Override
+            public CompletableFuture<MovieInfo> asyncReload(String movieId, MovieInfo cached, Executor executor) {
+                return reloader.apply(movieId, cached).toFuture();
+            }
+        });
+    }
+
+    public Mono<MovieInfo> get(String movieId) {
+        // cancelling one subscriber must not cancel the load shared with the others, so subscribe to a copy.
+        // A miss loads within the context of the subscriber that triggered it, so its trace continues upstream
+        return Mono.deferContextual(context -> Mono.fromFuture(cache
+                .get(movieId, (id, executor) -> loader.apply(id).contextWrite(context).toFuture())
+                .thenApply(Function.identity())));
+    }
+
+    public void invalidate(String movieId) {
+        cache.synchronous().invalidate(movieId);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+}
@@ -0,0 +1,56 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.stream.MovieInfoStreamBroadcaster;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Keeps the movie info cache coherent by evicting every id that shows up on the movies-info NDJSON stream.
+ * Events missed while disconnected cannot be replayed, so the whole cache is dropped on every (re)connect.
+ */
+@Component
+@Slf4j
+public class MovieInfoCacheInvalidator {
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+    private MovieInfoStreamBroadcaster movieInfoStreamBroadcaster;
+    private RestClientProperties.Cache cacheProperties;
+    private Disposable subscription;
+
+    public MovieInfoCacheInvalidator(MoviesInfoRestClient moviesInfoRestClient,
+                                     MovieInfoStreamBroadcaster movieInfoStreamBroadcaster,
+                                     RestClientProperties restClientProperties) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.movieInfoStreamBroadcaster = movieInfoStreamBroadcaster;
+        this.cacheProperties = restClientProperties.getMovieInfoCache();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        if (!cacheProperties.isEnabled() || !cacheProperties.isInvalidationEnabled()) {
+            return;
+        }
+
+        movieInfoStreamBroadcaster.onReconnect(moviesInfoRestClient::evictAllMovieInfos);
+        subscription = movieInfoStreamBroadcaster.stream()
+                .subscribe(movieInfo -> moviesInfoRestClient.evictMovieInfo(movieInfo.getMovieInfoId()),
+                        ex -> {
+                            log.warn("MovieInfo invalidation stream failed : {}", ex.getMessage());
+                            moviesInfoRestClient.evictAllMovieInfos();
+                        });
+    }
+
+    @PreDestroy
+    public void dispose() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
@@ -1,41 +1,179 @@
 package com.reactivespring.client;
 
-import com.reactivespring.domain.Movie;
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.config.RestClientProperties;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.tracing.SignalTracing;
+import com.reactivespring.util.ETags;
+import com.reactivespring.util.RetryBudget;
 import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.SingleFlight;
+import com.reactivespring.util.UpstreamMetrics;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.Exceptions;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.RetrySpec;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @Slf4j
 public class MoviesInfoRestClient {
 
     private WebClient webClient;
+    private RestClientProperties.Upstream upstreamProperties;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private RetryBudget retryBudget;
+    private Retry retrySpec;
+    private MovieInfoCache movieInfoCache;
+    private SingleFlight<String, MovieInfo> singleFlight;
+    // eviction generations, see fetchMovieInfo
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+    private UpstreamMetrics upstreamMetrics;
+    private SignalTracing.Route retrieveMovieInfoTracing;
+    private SignalTracing.Route retrieveMovieInfoStreamTracing;
 
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    public MoviesInfoRestClient(@Qualifier("moviesInfoWebClient") WebClient webClient,
+                                RestClientProperties restClientProperties,
+                                @Qualifier("moviesInfoCircuitBreaker") CircuitBreaker circuitBreaker,
+                                @Qualifier("moviesInfoBulkhead") Bulkhead bulkhead,
+                                MeterRegistry meterRegistry,
+                                Tracer tracer,
+                                SignalTracing signalTracing) {
         this.webClient = webClient;
+        this.upstreamProperties = restClientProperties.getMoviesInfo();
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        var retryProperties = upstreamProperties.getRetry();
+        this.retryBudget = new RetryBudget(retryProperties.getBudgetRatio(), retryProperties.getBudgetMaxTokens());
+        this.retrySpec = RetryUtil.retrySpec(retryProperties, retryBudget, tracer);
+        this.singleFlight = new SingleFlight<>("movies-info", meterRegistry);
+        this.upstreamMetrics = new UpstreamMetrics("movies-info", meterRegistry);
+        this.retrieveMovieInfoTracing = signalTracing.route("retrieveMovieInfo");
+        this.retrieveMovieInfoStreamTracing = signalTracing.route("retrieveMovieInfoStream");
+        var cacheProperties = restClientProperties.getMovieInfoCache();
+        this.movieInfoCache = cacheProperties.isEnabled() ? new MovieInfoCache(cacheProperties, this::fetchMovieInfo, this::revalidateMovieInfo)
+                : null;
     }
 
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
-        var url = moviesInfoUrl.concat("/{id}");
+        if (movieInfoCache != null) {
+            return movieInfoCache.get(movieId);
+        }
+        return fetchMovieInfo(movieId);
+    }
+
+    public void evictMovieInfo(String movieId) {
+        if (movieInfoCache != null) {
+            generations.merge(movieId, 1L, Long::sum);
+            movieInfoCache.invalidate(movieId);
+        }
+    }
+
+    public void evictAllMovieInfos() {
+        if (movieInfoCache != null) {
+            epoch.incrementAndGet();
+            generations.clear();
+            movieInfoCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Fetches only the given fields of the movie info. Projected documents bypass the cache, which holds full
+     * documents, and coalesce in single-flight only with requests for the same projection.
+     */
+    public Mono<MovieInfo> retrieveMovieInfo(String movieId, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return retrieveMovieInfo(movieId);
+        }
+        var fieldsParam = String.join(",", fields);
+        return singleFlight.executeMono(movieId + "?fields=" + fieldsParam, () -> requestMovieInfo(movieId, fieldsParam));
+    }
+
+    /**
+     * Coalesces concurrent loads of the same movie info. The key carries the eviction generation of the id, so a load
+     * triggered by an eviction starts a fresh request instead of storing the pre-update value an older flight returns.
+     */
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
+        return Mono.defer(() -> {
+            var flightKey = movieId + "#" + epoch.get() + "." + generations.getOrDefault(movieId, 0L);
+            return singleFlight.executeMono(flightKey, () -> requestMovieInfo(movieId, null));
+        });
+    }
+
+    /**
+     * Conditional GET for a cached movie info: a 304 carries no body, so the cached instance is reused without
+     * decoding anything. Movie infos without a version cannot be revalidated and are fetched again.
+     */
+    private Mono<MovieInfo> revalidateMovieInfo(String movieId, MovieInfo cached) {
+        if (cached.getVersion() == null) {
+            return fetchMovieInfo(movieId);
+        }
+        var url = UriComponentsBuilder.fromHttpUrl(moviesInfoUrl)
+                .path("/{id}")
+                .buildAndExpand(movieId).toUriString();
+
+        return webClient
+                .get()
+                .uri(url)
+                .ifNoneMatch(ETags.of(cached.getVersion(), Set.of()))
+                .exchangeToMono(clientResponse -> {
+                    var statusCode = clientResponse.statusCode();
+                    if (statusCode.equals(HttpStatus.NOT_MODIFIED)) {
+                        return clientResponse.releaseBody().thenReturn(cached);
+                    }
+                    if (statusCode.is2xxSuccessful()) {
+                        return clientResponse.bodyToMono(MovieInfo.class);
+                    }
+                    log.info("Status code is : {}", statusCode.value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .defaultIfEmpty(statusCode.getReasonPhrase())
+                            .flatMap(responseMessage -> Mono.<MovieInfo>error(statusCode.is5xxServerError()
+                                    ? new MoviesInfoServerException("Server Exception in MovieIndoService " + responseMessage)
+                                    : new MoviesInfoClientException(responseMessage, statusCode.value())));
+                })
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retrySpec)
+                .transform(RetryUtil.deadlineMono(upstreamProperties.getRetry().getDeadline()))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transform(upstreamMetrics.timedMono("revalidateMovieInfo"));
+    }
+
+    private Mono<MovieInfo> requestMovieInfo(String movieId, String fieldsParam) {
+        var url = UriComponentsBuilder.fromHttpUrl(moviesInfoUrl)
+                .path("/{id}")
+                .queryParamIfPresent("fields", Optional.ofNullable(fieldsParam))
+                .buildAndExpand(movieId).toUriString();
 
         return webClient
                 .get()
-                .uri(url, movieId)
+                .uri(url)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is : {}", clientResponse.statusCode().value());
@@ -60,8 +198,45 @@ public class MoviesInfoRestClient {
                             )));
                 })
                 .bodyToMono(MovieInfo.class)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retrySpec)
+                .transform(RetryUtil.deadlineMono(upstreamProperties.getRetry().getDeadline()))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transform(upstreamMetrics.timedMono("retrieveMovieInfo"))
+                .transform(retrieveMovieInfoTracing.mono());
+    }
+
+    public Flux<MovieInfo> retrieveMovieInfos(List<String> movieIds) {
+        var url = UriComponentsBuilder.fromHttpUrl(moviesInfoUrl)
+                .queryParam("ids", String.join(",", movieIds))
+                .buildAndExpand().toUriString();
+
+        return webClient
+                .get()
+                .uri(url)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(
+                                    responseMessage, clientResponse.statusCode().value()
+                            )));
+                })
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Status code is : {}", clientResponse.statusCode().value());
+
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                    "Server Exception in MovieIndoService " + responseMessage
+                            )));
+                })
+                .bodyToFlux(MovieInfo.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retrySpec)
+                .transform(RetryUtil.deadline(upstreamProperties.getRetry().getDeadline()))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transform(upstreamMetrics.timedFlux("retrieveMovieInfos"));
     }
 
     public Flux<MovieInfo> retrieveMovieInfoStream() {
@@ -71,6 +246,10 @@ public class MoviesInfoRestClient {
         return webClient
                 .get()
                 .uri(url)
+                .httpRequest(httpRequest -> {
+                    HttpClientRequest reactorRequest = httpRequest.getNativeRequest();
+                    reactorRequest.responseTimeout(upstreamProperties.getStreamResponseTimeout());
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is : {}", clientResponse.statusCode().value());
@@ -89,7 +268,7 @@ public class MoviesInfoRestClient {
                             )));
                 })
                 .bodyToFlux(MovieInfo.class)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .retryWhen(retrySpec)
+                .transform(retrieveMovieInfoStreamTracing.flux());
     }
 }
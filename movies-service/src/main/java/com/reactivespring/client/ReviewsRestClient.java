@@ -1,41 +1,140 @@
 package com.reactivespring.client;
 
+import com.reactivespring.config.RestClientProperties;
 import com.reactivespring.domain.Review;
-import com.reactivespring.exception.MoviesInfoClientException;
-import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.RetryBudget;
 import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.SingleFlight;
+import com.reactivespring.util.UpstreamMetrics;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Component
 @Slf4j
 public class ReviewsRestClient {
 
     private WebClient webClient;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private RestClientProperties.Upstream upstreamProperties;
+    private RetryBudget retryBudget;
+    private Retry retrySpec;
+    private SingleFlight<String, Review> singleFlight;
+    private UpstreamMetrics upstreamMetrics;
 
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
-    public ReviewsRestClient(WebClient webClient) {
+    public ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient,
+                             RestClientProperties restClientProperties,
+                             @Qualifier("reviewsCircuitBreaker") CircuitBreaker circuitBreaker,
+                             @Qualifier("reviewsBulkhead") Bulkhead bulkhead,
+                             MeterRegistry meterRegistry,
+                             Tracer tracer) {
         this.webClient = webClient;
+        this.upstreamProperties = restClientProperties.getReviews();
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        var retryProperties = upstreamProperties.getRetry();
+        this.retryBudget = new RetryBudget(retryProperties.getBudgetRatio(), retryProperties.getBudgetMaxTokens());
+        this.retrySpec = RetryUtil.retrySpec(retryProperties, retryBudget, tracer);
+        this.singleFlight = new SingleFlight<>("reviews", meterRegistry);
+        this.upstreamMetrics = new UpstreamMetrics("reviews", meterRegistry);
     }
 
     public Flux<Review> retrieveReviews(String movieId) {
+        return singleFlight.execute(movieId, () -> requestReviews(movieId, null));
+    }
+
+    /**
+     * Fetches only the given fields of each review; coalesces only with requests for the same projection.
+     */
+    public Flux<Review> retrieveReviews(String movieId, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return retrieveReviews(movieId);
+        }
+        var fieldsParam = String.join(",", fields);
+        return singleFlight.execute(movieId + "?fields=" + fieldsParam, () -> requestReviews(movieId, fieldsParam));
+    }
+
+    private Flux<Review> requestReviews(String movieId, String fieldsParam) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoId", movieId)
+                .queryParamIfPresent("fields", Optional.ofNullable(fieldsParam))
+                .buildAndExpand().toUriString();
+
+        return withResilience(retrieve(url).bodyToFlux(Review.class))
+                .transform(upstreamMetrics.timedFlux("retrieveReviews"));
+    }
+
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoIds", String.join(",", movieIds))
+                .buildAndExpand().toUriString();
+
+        return withResilience(retrieve(url).bodyToFlux(Review.class))
+                .transform(upstreamMetrics.timedFlux("retrieveReviewsBatch"));
+    }
+
+    /**
+     * Streams the reviews of a movie element by element for the streaming Movie response.
+     * It bypasses single-flight, whose replay would hold every review of the flight in memory,
+     * and is not retried or bounded by the deadline: a retry after elements were emitted would duplicate them.
+     */
+    public Flux<Review> streamReviews(String movieId) {
         var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
                 .queryParam("movieInfoId", movieId)
                 .buildAndExpand().toUriString();
 
+        return retrieve(url, MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                .bodyToFlux(Review.class)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transform(upstreamMetrics.timedFlux("streamReviews"));
+    }
+
+    public Mono<ReviewSummary> retrieveReviewSummary(String movieId) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .path("/summary")
+                .queryParam("movieInfoId", movieId)
+                .buildAndExpand().toUriString();
+
+        return withResilience(retrieve(url).bodyToFlux(ReviewSummary.class))
+                .next()
+                .transform(upstreamMetrics.timedMono("retrieveReviewSummary"));
+    }
+
+    private WebClient.ResponseSpec retrieve(String url, MediaType... accept) {
         return webClient
                 .get()
                 .uri(url)
+                .headers(headers -> {
+                    if (accept.length > 0) {
+                        headers.setAccept(List.of(accept));
+                    }
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                     log.info("Status code is : {}", clientResponse.statusCode().value());
@@ -56,8 +155,14 @@ public class ReviewsRestClient {
                             .flatMap(responseMessage -> Mono.error(new ReviewsServerException(
                                     "Server Exception in ReviewsService " + responseMessage
                             )));
-                })
-                .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec());
+                });
+    }
+
+    private <T> Flux<T> withResilience(Flux<T> response) {
+        return response
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retrySpec)
+                .transform(RetryUtil.deadline(upstreamProperties.getRetry().getDeadline()))
+                .transformDeferred(BulkheadOperator.of(bulkhead));
     }
 }
@@ -0,0 +1,40 @@
+package com.reactivespring.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.regex.Pattern;
+
+@Configuration
+public class MetricsConfiguration {
+
+    private static final Pattern MOVIE_INFO_ID = Pattern.compile("/movieinfos/(?!stream$)[^/]+");
+
+    /**
+     * The clients send expanded urls, so http.client.requests would get one uri tag per movie id, id list and
+     * field selection. Drops the query string and collapses the id back into the template the upstream route was
+     * declared with.
+     */
+    @Bean
+    public MeterFilter clientUriTemplateMeterFilter() {
+        return new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                var uri = id.getTag("uri");
+                if (!"http.client.requests".equals(id.getName()) || uri == null) {
+                    return id;
+                }
+                return id.withTag(Tag.of("uri", uriTemplate(uri)));
+            }
+        };
+    }
+
+    static String uriTemplate(String uri) {
+        var queryStart = uri.indexOf('?');
+        var path = queryStart < 0 ? uri : uri.substring(0, queryStart);
+        return MOVIE_INFO_ID.matcher(path).replaceAll("/movieinfos/{id}");
+    }
+}
@@ -0,0 +1,66 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsClientException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class ResilienceConfiguration {
+
+    @Bean
+    public CircuitBreaker moviesInfoCircuitBreaker(RestClientProperties restClientProperties) {
+        return circuitBreaker("movies-info", restClientProperties.getMoviesInfo().getCircuitBreaker());
+    }
+
+    @Bean
+    public CircuitBreaker reviewsCircuitBreaker(RestClientProperties restClientProperties) {
+        return circuitBreaker("reviews", restClientProperties.getReviews().getCircuitBreaker());
+    }
+
+    @Bean
+    public Bulkhead moviesInfoBulkhead(RestClientProperties restClientProperties) {
+        return bulkhead("movies-info", restClientProperties.getMoviesInfo().getBulkhead());
+    }
+
+    @Bean
+    public Bulkhead reviewsBulkhead(RestClientProperties restClientProperties) {
+        return bulkhead("reviews", restClientProperties.getReviews().getBulkhead());
+    }
+
+    private static CircuitBreaker circuitBreaker(String name, RestClientProperties.CircuitBreaker properties) {
+        var config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallDurationThreshold())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.getPermittedNumberOfCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                // a 4xx is the caller's problem, not a sign that the upstream is unhealthy
+                .ignoreExceptions(MoviesInfoClientException.class, ReviewsClientException.class)
+                .build();
+
+        var circuitBreaker = CircuitBreaker.of(name, config);
+        circuitBreaker.getEventPublisher()
+                .onStateTransition(event -> log.warn("CircuitBreaker {} : {}",
+                        name, event.getStateTransition()));
+        return circuitBreaker;
+    }
+
+    private static Bulkhead bulkhead(String name, RestClientProperties.Bulkhead properties) {
+        var config = BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getMaxWaitDuration())
+                .build();
+
+        return Bulkhead.of(name, config);
+    }
+}
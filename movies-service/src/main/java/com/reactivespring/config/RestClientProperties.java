@@ -0,0 +1,101 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-upstream settings bound from {@code restClient.*} in application.yml.
+ */
+@Data
+@ConfigurationProperties(prefix = "rest-client")
+public class RestClientProperties {
+
+    private Upstream moviesInfo = new Upstream();
+    private Upstream reviews = new Upstream();
+    private Cache movieInfoCache = new Cache();
+    private Stream movieInfoStream = new Stream();
+
+    @Data
+    public static class Upstream {
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        // long-lived NDJSON streams only see traffic when an event is published
+        private Duration streamResponseTimeout = Duration.ofMinutes(10);
+        private Pool pool = new Pool();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private Bulkhead bulkhead = new Bulkhead();
+        private Retry retry = new Retry();
+    }
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private boolean keepAlive = true;
+        private boolean metricsEnabled = true;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(5);
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedNumberOfCallsInHalfOpenState = 3;
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 50;
+        // zero means reject immediately once all permits are taken
+        private Duration maxWaitDuration = Duration.ZERO;
+    }
+
+    @Data
+    public static class Retry {
+        private long maxAttempts = 3;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        // fraction of the backoff that is randomised, 0.5 means +/- 50%
+        private double jitter = 0.5;
+        // overall time allowed for a request including all of its retries
+        private Duration deadline = Duration.ofSeconds(10);
+        // retries allowed per live request, plus a burst allowance for quiet periods
+        private double budgetRatio = 0.1;
+        private int budgetMaxTokens = 10;
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+        // entries older than this are revalidated in the background with a conditional GET, null disables it
+        private Duration refreshAfterWrite = Duration.ofMinutes(1);
+        // evict entries as changes arrive on the movie info stream
+        private boolean invalidationEnabled = true;
+    }
+
+    @Data
+    public static class Stream {
+        // events buffered per downstream subscriber before the overflow strategy applies
+        private int bufferSize = 256;
+        private OverflowStrategy overflowStrategy = OverflowStrategy.DROP_OLDEST;
+        // keeps the upstream connection open briefly after the last subscriber leaves
+        private Duration gracePeriod = Duration.ofSeconds(5);
+        private Duration minReconnectBackoff = Duration.ofSeconds(1);
+        private Duration maxReconnectBackoff = Duration.ofSeconds(30);
+    }
+
+    public enum OverflowStrategy {
+        DROP_OLDEST, DROP_LATEST, DISCONNECT
+    }
+}
@@ -1,14 +1,63 @@
 package com.reactivespring.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
+@EnableConfigurationProperties(RestClientProperties.class)
 public class WebClientConfiguration {
 
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(RestClientProperties restClientProperties) {
+        return connectionProvider("movies-info", restClientProperties.getMoviesInfo().getPool());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(RestClientProperties restClientProperties) {
+        return connectionProvider("reviews", restClientProperties.getReviews().getPool());
+    }
+
+    @Bean
+    public WebClient moviesInfoWebClient(WebClient.Builder builder,
+                                         ConnectionProvider moviesInfoConnectionProvider,
+                                         RestClientProperties restClientProperties) {
+        return webClient(builder, moviesInfoConnectionProvider, restClientProperties.getMoviesInfo());
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient reviewsWebClient(WebClient.Builder builder,
+                                      ConnectionProvider reviewsConnectionProvider,
+                                      RestClientProperties restClientProperties) {
+        return webClient(builder, reviewsConnectionProvider, restClientProperties.getReviews());
+    }
+
+    private static ConnectionProvider connectionProvider(String name, RestClientProperties.Pool pool) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(pool.isMetricsEnabled())
+                .build();
+    }
+
+    private static WebClient webClient(WebClient.Builder builder, ConnectionProvider connectionProvider,
+                                       RestClientProperties.Upstream upstream) {
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) upstream.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, upstream.getPool().isKeepAlive())
+                .responseTimeout(upstream.getResponseTimeout());
+
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 }
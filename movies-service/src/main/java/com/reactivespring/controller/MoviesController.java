@@ -1,46 +1,314 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.stream.MovieInfoStreamBroadcaster;
+import com.reactivespring.util.ETags;
+import com.reactivespring.util.MovieFieldProjection;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/v1/movies")
+@Slf4j
 public class MoviesController {
 
+    public static final String VIEW_SUMMARY = "summary";
+
     private MoviesInfoRestClient moviesInfoRestClient;
     private ReviewsRestClient reviewsRestClient;
+    private MovieInfoStreamBroadcaster movieInfoStreamBroadcaster;
+    private ObjectMapper objectMapper;
+
+    @Value("${movies.aggregation.parallel:true}")
+    private boolean parallelAggregation;
+
+    // every id goes into one upstream query string, so the batch size bounds the URL length
+    @Value("${movies.batch.maxIds:100}")
+    private int maxBatchIds;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient,
+                            MovieInfoStreamBroadcaster movieInfoStreamBroadcaster, ObjectMapper objectMapper) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.reviewsRestClient = reviewsRestClient;
+        this.movieInfoStreamBroadcaster = movieInfoStreamBroadcaster;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+    public Mono<ResponseEntity<Movie>> retrieveMovieById(@PathVariable("id") String movieId,
+                                                         @RequestParam(value = "view", required = false) String view,
+                                                         @RequestParam(value = "fields", required = false) String fields,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        return moviesInfoRestClient.retrieveMovieInfo(movieId)
+        var projection = toProjection(fields);
+
+        return retrieveMovie(movieId, view, projection)
+                .map(movie -> {
+                    var etag = movieETag(movie, view, projection);
+                    if (ETags.matches(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<Movie>build();
+                    }
+                    var response = ResponseEntity.ok();
+                    Optional.ofNullable(etag).ifPresent(response::eTag);
+                    return response.body(movie);
+                });
+    }
+
+    private Mono<Movie> retrieveMovie(String movieId, String view, MovieFieldProjection projection) {
+
+        if (VIEW_SUMMARY.equals(view)) {
+            return retrieveMovieSummaryById(movieId, projection);
+        }
+
+        if (parallelAggregation) {
+            return retrieveMovieByIdParallel(movieId, projection);
+        }
+
+        return moviesInfoRestClient.retrieveMovieInfo(movieId, projection.getMovieInfoFields())
                 .flatMap(movieInfo -> {
 
-                    var reviewsListMono = reviewsRestClient.retrieveReviews(movieId)
-                            .collectList();
+                    var reviewsListMono = retrieveReviewsOrDegrade(movieId, projection);
 
                     return reviewsListMono.map(reviews -> new Movie(movieInfo, reviews));
 
                 });
     }
 
+    /**
+     * Digest of the upstream versions the aggregate was built from, so a 304 skips encoding and sending it.
+     * Null when any part is unversioned, since the tag would then not change with the content.
+     */
+    private static String movieETag(Movie movie, String view, MovieFieldProjection projection) {
+        var movieInfo = movie.getMovieInfo();
+        if (movieInfo.getVersion() == null) {
+            return null;
+        }
+
+        var parts = new ArrayList<String>();
+        parts.add("view:" + view);
+        parts.add("fields:" + projection.getMovieInfoFields() + projection.getReviewFields());
+        parts.add("movieInfo:" + movieInfo.getMovieInfoId() + ":" + movieInfo.getVersion());
+        if (movie.getReviewList() != null) {
+            var reviews = movie.getReviewList().stream()
+                    .sorted(Comparator.comparing(Review::getReviewId, Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .collect(Collectors.toList());
+            for (var review : reviews) {
+                if (review.getVersion() == null) {
+                    return null;
+                }
+                parts.add("review:" + review.getReviewId() + ":" + review.getVersion());
+            }
+        }
+        var reviewSummary = movie.getReviewSummary();
+        if (reviewSummary != null) {
+            var histogram = reviewSummary.getHistogram() == null ? Map.of() : new TreeMap<>(reviewSummary.getHistogram());
+            parts.add("summary:" + reviewSummary.getCount() + ":" + reviewSummary.getAverage() + ":" + histogram);
+        }
+        return ETags.digest(parts);
+    }
+
+    /**
+     * Same JSON document as {@link #retrieveMovieById}, but the movieInfo header is written as soon as it arrives
+     * and each review is encoded and flushed as it is decoded from the upstream, so memory per request stays
+     * constant regardless of the number of reviews. Status and headers are decided once the movie info is known;
+     * a reviews failure after that point can only abort the response.
+     */
+    @GetMapping(value = "/{id}", params = "stream=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> streamMovieById(@PathVariable("id") String movieId,
+                                                                  ServerHttpResponse response) {
+        var bufferFactory = response.bufferFactory();
+
+        return moviesInfoRestClient.retrieveMovieInfo(movieId)
+                .map(movieInfo -> {
+                    var header = Mono.fromCallable(() -> bufferFactory.wrap(
+                            ("{\"movieInfo\":" + objectMapper.writeValueAsString(movieInfo) + ",\"reviewList\":[")
+                                    .getBytes(StandardCharsets.UTF_8)));
+
+                    var reviews = reviewsRestClient.streamReviews(movieId)
+                            .onErrorResume(MoviesController::isLoadShedding, ex -> {
+                                log.warn("Serving movie {} without reviews : {}", movieId, ex.getMessage());
+                                return Flux.empty();
+                            })
+                            .index()
+                            .<DataBuffer>handle((indexedReview, sink) -> {
+                                try {
+                                    var json = objectMapper.writeValueAsBytes(indexedReview.getT2());
+                                    var buffer = bufferFactory.allocateBuffer(json.length + 1);
+                                    if (indexedReview.getT1() > 0) {
+                                        buffer.write((byte) ',');
+                                    }
+                                    sink.next(buffer.write(json));
+                                } catch (JsonProcessingException e) {
+                                    sink.error(e);
+                                }
+                            });
+
+                    var footer = Mono.fromCallable(() -> bufferFactory.wrap("]}".getBytes(StandardCharsets.UTF_8)));
+
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(Flux.concat(header, reviews, footer));
+                });
+    }
+
+    /**
+     * Issues the movie info and reviews calls concurrently, so the latency is the slowest leg instead of the sum.
+     * If the movie info call fails (e.g. 404), zip cancels the in-flight reviews call and propagates the error.
+     * A reviews failure is only raised once the movie info has resolved, so it never masks a movie info error.
+     */
+    private Mono<Movie> retrieveMovieByIdParallel(String movieId, MovieFieldProjection projection) {
+
+        return Mono.zip(
+                moviesInfoRestClient.retrieveMovieInfo(movieId, projection.getMovieInfoFields()),
+                retrieveReviewsOrDegrade(movieId, projection).materialize())
+                .flatMap(tuple -> dematerialize(tuple.getT2())
+                        .map(reviews -> new Movie(tuple.getT1(), reviews)));
+    }
+
+    private static <T> Mono<T> dematerialize(Signal<T> signal) {
+        return signal.hasError() ? Mono.error(signal.getThrowable()) : Mono.justOrEmpty(signal.get());
+    }
+
+    /**
+     * Reviews are optional for the aggregate: when the reviews upstream is shedding load
+     * (breaker open or bulkhead full) the movie is served without them instead of failing.
+     */
+    private Mono<List<Review>> retrieveReviewsOrDegrade(String movieId, MovieFieldProjection projection) {
+
+        return reviewsRestClient.retrieveReviews(movieId, projection.getReviewFields())
+                .collectList()
+                .onErrorResume(MoviesController::isLoadShedding, ex -> {
+                    log.warn("Serving movie {} without reviews : {}", movieId, ex.getMessage());
+                    return Mono.just(List.of());
+                });
+    }
+
+    /**
+     * Embeds the precomputed review summary (count, average, histogram) instead of every review,
+     * so the payload no longer grows with the number of reviews of the movie.
+     */
+    private Mono<Movie> retrieveMovieSummaryById(String movieId, MovieFieldProjection projection) {
+
+        var reviewSummaryMono = reviewsRestClient.retrieveReviewSummary(movieId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(MoviesController::isLoadShedding, ex -> {
+                    log.warn("Serving movie {} without review summary : {}", movieId, ex.getMessage());
+                    return Mono.just(Optional.empty());
+                });
+
+        return Mono.zip(moviesInfoRestClient.retrieveMovieInfo(movieId, projection.getMovieInfoFields()),
+                        reviewSummaryMono.materialize())
+                .flatMap(tuple -> dematerialize(tuple.getT2())
+                        .map(reviewSummary -> new Movie(tuple.getT1(), reviewSummary.orElse(null))));
+    }
+
+    private static MovieFieldProjection toProjection(String fields) {
+        try {
+            return MovieFieldProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields : " + e.getMessage());
+        }
+    }
+
+    private static boolean isLoadShedding(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+    @GetMapping(params = "ids", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+
+        return retrieveMovies(movieIds);
+    }
+
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMoviesBatch(@RequestBody List<String> movieIds) {
+
+        return retrieveMovies(movieIds);
+    }
+
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> retrieveMovieInfoStream() {
 
-        return moviesInfoRestClient.retrieveMovieInfoStream();
+        return movieInfoStreamBroadcaster.stream();
+    }
+
+    /**
+     * Resolves many movies with one bulk call per upstream instead of two calls per movie.
+     * Both calls run concurrently and are collected in full, the reviews grouped by movieInfoId, before the first
+     * movie is emitted, so the response starts once the slower upstream has answered.
+     * Null ids and more than {@code movies.batch.maxIds} distinct ids are rejected with 400.
+     */
+    private Flux<Movie> retrieveMovies(List<String> movieIds) {
+        if (movieIds.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids : must not contain null");
+        }
+
+        var distinctIds = movieIds.stream()
+                .filter(id -> !id.isBlank())
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (distinctIds.isEmpty()) {
+            return Flux.empty();
+        }
+        if (distinctIds.size() > maxBatchIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "ids : at most " + maxBatchIds + " distinct ids per request");
+        }
+
+        var reviewsByMovieIdMono = reviewsRestClient.retrieveReviews(distinctIds)
+                .collectMultimap(review -> String.valueOf(review.getMovieInfoId()))
+                .onErrorResume(MoviesController::isLoadShedding, ex -> {
+                    log.warn("Serving movies {} without reviews : {}", distinctIds, ex.getMessage());
+                    return Mono.just(Map.of());
+                });
+
+        return Mono.zip(moviesInfoRestClient.retrieveMovieInfos(distinctIds).collectList(), reviewsByMovieIdMono)
+                .flatMapMany(tuple -> {
+                    var reviewsByMovieId = tuple.getT2();
+
+                    return Flux.fromIterable(tuple.getT1())
+                            .map(movieInfo -> {
+                                List<Review> reviews = new ArrayList<>(
+                                        reviewsByMovieId.getOrDefault(movieInfo.getMovieInfoId(), List.of()));
+                                return new Movie(movieInfo, reviews);
+                            });
+                });
     }
 }
@@ -1,6 +1,7 @@
 package com.reactivespring.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,5 +14,18 @@ import java.util.List;
 public class Movie {
 
     private MovieInfo movieInfo;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<Review> reviewList;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ReviewSummary reviewSummary;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this.movieInfo = movieInfo;
+        this.reviewList = reviewList;
+    }
+
+    public Movie(MovieInfo movieInfo, ReviewSummary reviewSummary) {
+        this.movieInfo = movieInfo;
+        this.reviewSummary = reviewSummary;
+    }
 }
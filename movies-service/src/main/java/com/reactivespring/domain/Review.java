@@ -1,5 +1,6 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -7,6 +8,7 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Review {
 
     private String reviewId;
@@ -14,4 +16,5 @@ public class Review {
     private String comment;
     //@Min(value = 0L, message = "rating.negative : rating is negative and please pass a non-negative value")
     private Double rating;
+    private Long version;
 }
@@ -2,11 +2,16 @@ package com.reactivespring.globalerrorhandler;
 
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.ReviewsClientException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeoutException;
 
 @ControllerAdvice
 @Slf4j
@@ -24,6 +29,24 @@ public class GlobalErrorHandler {
         return ResponseEntity.status(exception.getStatusCode()).body(exception.getMessage());
     }
 
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    public ResponseEntity<String> handleLoadSheddingException(RuntimeException exception) {
+        log.error("Exception Caught in handleLoadSheddingException : {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(exception.getMessage());
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<String> handleTimeoutException(TimeoutException exception) {
+        log.error("Exception Caught in handleTimeoutException : {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(exception.getMessage());
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException exception) {
+        log.error("Exception Caught in handleResponseStatusException : {}", exception.getMessage());
+        return ResponseEntity.status(exception.getStatus()).body(exception.getReason());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException exception) {
         log.error("Exception Caught in handleRuntimeException : {}", exception.getMessage());
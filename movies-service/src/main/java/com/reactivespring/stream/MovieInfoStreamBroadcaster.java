@@ -0,0 +1,83 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multicasts one reference-counted upstream movie info stream to every downstream subscriber.
+ * The upstream is connected on the first subscriber, reconnected with backoff when it drops,
+ * and released once the last subscriber has been gone for the grace period.
+ * Each subscriber gets its own bounded buffer so a slow client cannot stall the others.
+ */
+@Component
+@Slf4j
+public class MovieInfoStreamBroadcaster {
+
+    private final Flux<MovieInfo> shared;
+    private final RestClientProperties.Stream streamProperties;
+    private final List<Runnable> reconnectListeners = new CopyOnWriteArrayList<>();
+    private final Counter droppedEvents;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public MovieInfoStreamBroadcaster(MoviesInfoRestClient moviesInfoRestClient,
+                                      RestClientProperties restClientProperties,
+                                      MeterRegistry meterRegistry) {
+        this.streamProperties = restClientProperties.getMovieInfoStream();
+        this.droppedEvents = Counter.builder("movies.stream.dropped")
+                .tag("stream", "movieinfos")
+                .tag("strategy", streamProperties.getOverflowStrategy().name())
+                .register(meterRegistry);
+        Gauge.builder("movies.stream.subscribers", subscribers, AtomicInteger::get)
+                .tag("stream", "movieinfos")
+                .register(meterRegistry);
+
+        this.shared = moviesInfoRestClient.retrieveMovieInfoStream()
+                .doOnSubscribe(subscription -> reconnectListeners.forEach(Runnable::run))
+                .doOnError(ex -> log.warn("MovieInfo stream disconnected : {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, streamProperties.getMinReconnectBackoff())
+                        .maxBackoff(streamProperties.getMaxReconnectBackoff())
+                        .transientErrors(true))
+                .repeatWhen(completed -> completed.delayElements(streamProperties.getMinReconnectBackoff()))
+                .publish()
+                .refCount(1, streamProperties.getGracePeriod());
+    }
+
+    public Flux<MovieInfo> stream() {
+        return shared.onBackpressureBuffer(streamProperties.getBufferSize(),
+                dropped -> droppedEvents.increment(),
+                toBufferOverflowStrategy(streamProperties.getOverflowStrategy()))
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signalType -> subscribers.decrementAndGet());
+    }
+
+    /**
+     * Registers a callback invoked every time the upstream (re)connects, i.e. whenever events may have been missed.
+     */
+    public void onReconnect(Runnable listener) {
+        reconnectListeners.add(listener);
+    }
+
+    private static BufferOverflowStrategy toBufferOverflowStrategy(RestClientProperties.OverflowStrategy strategy) {
+        switch (strategy) {
+            case DROP_LATEST:
+                return BufferOverflowStrategy.DROP_LATEST;
+            case DISCONNECT:
+                return BufferOverflowStrategy.ERROR;
+            default:
+                return BufferOverflowStrategy.DROP_OLDEST;
+        }
+    }
+}
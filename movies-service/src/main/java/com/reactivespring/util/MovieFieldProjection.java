@@ -0,0 +1,59 @@
+package com.reactivespring.util;
+
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The {@code fields} parameter of the Movie aggregate, e.g. {@code movieInfo.name,movieInfo.year,reviewList.rating}.
+ * Each part is forwarded to its upstream as that service's own {@code fields} parameter; a part without any
+ * requested field is fetched in full.
+ */
+@Getter
+public class MovieFieldProjection {
+
+    public static final MovieFieldProjection NONE = new MovieFieldProjection(Set.of(), Set.of());
+
+    private static final String MOVIE_INFO_PREFIX = "movieInfo.";
+    private static final String REVIEW_PREFIX = "reviewList.";
+    private static final Set<String> MOVIE_INFO_FIELDS = Set.of("movieInfoId", "name", "year", "cast", "release_date");
+    private static final Set<String> REVIEW_FIELDS = Set.of("reviewId", "movieInfoId", "comment", "rating");
+
+    private final Set<String> movieInfoFields;
+    private final Set<String> reviewFields;
+
+    private MovieFieldProjection(Set<String> movieInfoFields, Set<String> reviewFields) {
+        this.movieInfoFields = movieInfoFields;
+        this.reviewFields = reviewFields;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a field outside the movieInfo / reviewList whitelists
+     */
+    public static MovieFieldProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return NONE;
+        }
+
+        // sorted, so that equal projections produce the same upstream url and single-flight key
+        var movieInfoFields = new TreeSet<String>();
+        var reviewFields = new TreeSet<String>();
+        for (var field : fields.split(",")) {
+            var trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.startsWith(MOVIE_INFO_PREFIX)
+                    && MOVIE_INFO_FIELDS.contains(trimmed.substring(MOVIE_INFO_PREFIX.length()))) {
+                movieInfoFields.add(trimmed.substring(MOVIE_INFO_PREFIX.length()));
+            } else if (trimmed.startsWith(REVIEW_PREFIX)
+                    && REVIEW_FIELDS.contains(trimmed.substring(REVIEW_PREFIX.length()))) {
+                reviewFields.add(trimmed.substring(REVIEW_PREFIX.length()));
+            } else {
+                throw new IllegalArgumentException("unknown field " + trimmed);
+            }
+        }
+        return new MovieFieldProjection(movieInfoFields, reviewFields);
+    }
+}
@@ -1,18 +1,100 @@
 package com.reactivespring.util;
 
+import com.reactivespring.config.RestClientProperties;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsServerException;
-import reactor.core.Exceptions;
+import org.springframework.cloud.sleuth.Tracer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
-import reactor.util.retry.RetrySpec;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static com.reactivespring.tracing.Spans.childSpan;
 
 public class RetryUtil {
 
-    public static Retry retrySpec() {
-        return RetrySpec.fixedDelay(3, Duration.ofSeconds(1))
-                .filter((ex) -> ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException)
-                .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure())));
+    /**
+     * Exponential backoff with jitter, bounded by maxAttempts and by the caller's retry budget.
+     * The companion is generated once per subscription, which is where the request deposits into the budget.
+     */
+    public static Retry retrySpec(RestClientProperties.Retry properties, RetryBudget retryBudget) {
+        return retrySpec(properties, retryBudget, null);
+    }
+
+    /**
+     * Like {@link #retrySpec(RestClientProperties.Retry, RetryBudget)}, recording each backoff as a "retry" span
+     * tagged with the attempt it precedes and the failure that caused it, next to the client spans of the
+     * attempts themselves. No spans are recorded when the tracer is null.
+     */
+    public static Retry retrySpec(RestClientProperties.Retry properties, RetryBudget retryBudget, Tracer tracer) {
+        return Retry.from(retrySignals -> {
+            retryBudget.deposit();
+
+            return retrySignals.concatMap(retrySignal -> {
+                var failure = retrySignal.failure();
+                if (!isRetryable(failure)
+                        || retrySignal.totalRetries() >= properties.getMaxAttempts()
+                        || !retryBudget.tryAcquire()) {
+                    return Mono.error(failure);
+                }
+                var delay = Mono.delay(backoff(properties, retrySignal.totalRetries()));
+                return tracer == null ? delay : traced(delay, tracer, retrySignal.totalRetries() + 1, failure);
+            });
+        });
+    }
+
+    private static Mono<Long> traced(Mono<Long> delay, Tracer tracer, long attempt, Throwable failure) {
+        return Mono.deferContextual(context -> {
+            var span = childSpan(tracer, context)
+                    .name("retry")
+                    .tag("retry.attempt", String.valueOf(attempt))
+                    .tag("retry.cause", failure.getClass().getSimpleName())
+                    .start();
+            return delay.doFinally(signalType -> span.end());
+        });
+    }
+
+    /**
+     * Fails the whole flux with a TimeoutException once the deadline passes, counting from subscription.
+     * Unlike {@link Flux#timeout(Duration)} the budget is not reset by each emitted element.
+     */
+    public static <T> Function<Flux<T>, Flux<T>> deadline(Duration deadline) {
+        return flux -> Flux.defer(() -> {
+            var deadlineNanos = System.nanoTime() + deadline.toNanos();
+            return flux.timeout(remaining(deadlineNanos), item -> remaining(deadlineNanos));
+        });
+    }
+
+    /**
+     * {@link #deadline(Duration)} for a Mono: it emits at most once, so its timeout already counts from subscription.
+     */
+    public static <T> Function<Mono<T>, Mono<T>> deadlineMono(Duration deadline) {
+        return mono -> mono.timeout(deadline);
+    }
+
+    private static Mono<Long> remaining(long deadlineNanos) {
+        return Mono.delay(Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime())));
+    }
+
+    private static boolean isRetryable(Throwable ex) {
+        return ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException;
+    }
+
+    static Duration backoff(RestClientProperties.Retry properties, long retry) {
+        var minBackoff = properties.getMinBackoff().toMillis();
+        var maxBackoff = properties.getMaxBackoff().toMillis();
+
+        var exponential = minBackoff * (1L << Math.min(retry, 30));
+        var base = exponential <= 0 ? maxBackoff : Math.min(maxBackoff, exponential);
+
+        var spread = (long) (base * properties.getJitter());
+        var jittered = spread > 0
+                ? base - spread + ThreadLocalRandom.current().nextLong(2 * spread + 1)
+                : base;
+
+        return Duration.ofMillis(Math.max(minBackoff, Math.min(maxBackoff, jittered)));
     }
 }
@@ -0,0 +1,69 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight upstream call among all concurrent subscribers asking for the same key.
+ * Elements are replayed to subscribers that join mid-flight. The entry is removed as soon as the call
+ * completes, fails or loses its last subscriber, so later subscribers always trigger a fresh call.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flux<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaderCalls;
+    private final Counter coalescedCalls;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.leaderCalls = Counter.builder("movies.singleflight.calls")
+                .tag("name", name)
+                .tag("result", "leader")
+                .register(meterRegistry);
+        this.coalescedCalls = Counter.builder("movies.singleflight.calls")
+                .tag("name", name)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+    }
+
+    public Flux<V> execute(K key, Supplier<Flux<V>> call) {
+        return Flux.defer(() -> {
+            var created = new boolean[1];
+            var flight = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return newFlight(k, call);
+            });
+
+            if (created[0]) {
+                leaderCalls.increment();
+            } else {
+                coalescedCalls.increment();
+            }
+            return flight;
+        });
+    }
+
+    public Mono<V> executeMono(K key, Supplier<Mono<V>> call) {
+        return execute(key, () -> call.get().flux()).next();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private Flux<V> newFlight(K key, Supplier<Flux<V>> call) {
+        var self = new AtomicReference<Flux<V>>();
+        var flight = call.get()
+                .doFinally(signalType -> inFlight.remove(key, self.get()))
+                .replay()
+                .refCount();
+        self.set(flight);
+        return flight;
+    }
+}
@@ -0,0 +1,82 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Times upstream calls as the caller sees them, bulkhead wait, retries and backoff included, whereas
+ * http.client.requests times each attempt on the wire. Tagged by upstream, operation, outcome and status, where
+ * status is the response code of a client error, 5xx for a server error, 2xx for success (a 304 revalidation
+ * included) and NONE when no response was received.
+ */
+public class UpstreamMetrics {
+
+    public static final String TIMER_NAME = "movies.upstream.requests";
+
+    private final String upstream;
+    private final MeterRegistry meterRegistry;
+
+    public UpstreamMetrics(String upstream, MeterRegistry meterRegistry) {
+        this.upstream = upstream;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> timedMono(String operation) {
+        return mono -> Mono.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return mono
+                    .doOnSuccess(value -> stop(sample, operation, "SUCCESS", "2xx"))
+                    .doOnError(ex -> stop(sample, operation, ex))
+                    .doOnCancel(() -> stop(sample, operation, "CANCELLED", "NONE"));
+        });
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> timedFlux(String operation) {
+        return flux -> Flux.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return flux
+                    .doOnComplete(() -> stop(sample, operation, "SUCCESS", "2xx"))
+                    .doOnError(ex -> stop(sample, operation, ex))
+                    .doOnCancel(() -> stop(sample, operation, "CANCELLED", "NONE"));
+        });
+    }
+
+    private void stop(Timer.Sample sample, String operation, Throwable ex) {
+        if (ex instanceof MoviesInfoClientException) {
+            stop(sample, operation, "CLIENT_ERROR", String.valueOf(((MoviesInfoClientException) ex).getStatusCode()));
+        } else if (ex instanceof ReviewsClientException) {
+            stop(sample, operation, "CLIENT_ERROR", String.valueOf(((ReviewsClientException) ex).getStatusCode()));
+        } else if (ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException) {
+            stop(sample, operation, "SERVER_ERROR", "5xx");
+        } else if (ex instanceof TimeoutException) {
+            stop(sample, operation, "TIMEOUT", "NONE");
+        } else if (ex instanceof CallNotPermittedException) {
+            stop(sample, operation, "CIRCUIT_OPEN", "NONE");
+        } else if (ex instanceof BulkheadFullException) {
+            stop(sample, operation, "REJECTED", "NONE");
+        } else {
+            stop(sample, operation, "ERROR", "NONE");
+        }
+    }
+
+    private void stop(Timer.Sample sample, String operation, String outcome, String status) {
+        sample.stop(Timer.builder(TIMER_NAME)
+                .description("Upstream calls including bulkhead wait, retries and backoff")
+                .tag("upstream", upstream)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("status", status)
+                .register(meterRegistry));
+    }
+}
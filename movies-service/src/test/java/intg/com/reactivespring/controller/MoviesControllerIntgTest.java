@@ -1,21 +1,35 @@
 package com.reactivespring.controller;
 
+import brave.Span;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.tracing.InMemorySpanHandler;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -24,7 +38,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 @TestPropertySource(
         properties = {
                 "restClient.moviesInfoUrl=http://localhost:8084/v1/movieinfos",
-                "restClient.reviewsUrl=http://localhost:8084/v1/reviews"
+                "restClient.reviewsUrl=http://localhost:8084/v1/reviews",
+                "restClient.movieInfoCache.enabled=false",
+                "spring.sleuth.sampler.probability=1.0"
         }
 )
 public class MoviesControllerIntgTest {
@@ -32,9 +48,31 @@ public class MoviesControllerIntgTest {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    @Qualifier("moviesInfoCircuitBreaker")
+    CircuitBreaker moviesInfoCircuitBreaker;
+
+    @Autowired
+    @Qualifier("reviewsCircuitBreaker")
+    CircuitBreaker reviewsCircuitBreaker;
+
+    @Autowired
+    InMemorySpanHandler spanHandler;
+
+    @TestConfiguration
+    static class TracingConfiguration {
+
+        @Bean
+        InMemorySpanHandler inMemorySpanHandler() {
+            return new InMemorySpanHandler();
+        }
+    }
+
     @BeforeEach
     void setUp() {
         WireMock.reset();
+        moviesInfoCircuitBreaker.reset();
+        reviewsCircuitBreaker.reset();
     }
 
     @Test
@@ -68,6 +106,161 @@ public class MoviesControllerIntgTest {
         //then
     }
 
+    @Test
+    void retrieveMovieById_streaming() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}?stream=true", "abc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                            var movie = movieEntityExchangeResult.getResponseBody();
+                            assertEquals(2, Objects.requireNonNull(movie).getReviewList().size());
+                            assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                        }
+                );
+        //then
+        WireMock.verify(getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withHeader("Accept", containing("application/x-ndjson")));
+    }
+
+    @Test
+    void retrieveMovieById_streaming_404() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}?stream=true", "abc")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void retrieveMovieById_projected() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlPathEqualTo("/v1/movieinfos/" + movieId))
+                .withQueryParam("fields", equalTo("name,year"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .withQueryParam("fields", equalTo("rating"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"reviewId\":\"1\",\"rating\":9.0},{\"reviewId\":\"2\",\"rating\":8.0}]")));
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}?fields=movieInfo.year,movieInfo.name,reviewList.rating", "abc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.movieInfo.cast").doesNotExist()
+                .jsonPath("$.reviewList.length()").isEqualTo(2)
+                .jsonPath("$.reviewList[0].rating").isEqualTo(9.0)
+                .jsonPath("$.reviewList[0].comment").doesNotExist();
+    }
+
+    @Test
+    void retrieveMovieById_unknownField() {
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}?fields=movieInfo.budget", "abc")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void retrieveMovieById_summaryView() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews/summary"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviewsummary.json")));
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}?view=summary", "abc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.reviewSummary.count").isEqualTo(2)
+                .jsonPath("$.reviewSummary.average").isEqualTo(8.5)
+                .jsonPath("$.reviewList").doesNotExist();
+        //then
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieById_notModified() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        var etag = webTestClient.get()
+                .uri("/v1/movies/{id}", "abc")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Movie.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}", "abc")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        //then
+        webTestClient.get()
+                .uri("/v1/movies/{id}?fields=reviewList.rating", "abc")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
     @Test
     void retrieveMovieById_404() {
         //given
@@ -92,6 +285,35 @@ public class MoviesControllerIntgTest {
     }
 
 
+    @Test
+    void retrieveMovieById_404_reviewsFailFirst() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)
+                        .withFixedDelay(2000)));
+
+        // the reviews call and its retries fail well before the movie info answers
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Review Service Unavailable")));
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class)
+                .value(message -> {
+                    assertEquals("There is no MovieInfo Available for the passed in Id : abc", message);
+                });
+        //then
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+    }
+
     @Test
     void retrieveMovieById_Reviews_404() {
         //given
@@ -125,11 +347,12 @@ public class MoviesControllerIntgTest {
                         .withStatus(500)
                         .withBody("MovieInfo Service Unavailable")));
 
-        /*stubFor(get(urlPathEqualTo("/v1/reviews"))
+        // reviews are fetched concurrently with the movie info
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
                 .withQueryParam("movieInfoId", equalTo(movieId))
                 .willReturn(aResponse()
-                        .withStatus(500)));
-*/
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
 
         //when
         webTestClient.get()
@@ -145,6 +368,59 @@ public class MoviesControllerIntgTest {
         WireMock.verify(4, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
     }
 
+    @Test
+    void retrieveMovieById_tracedAcrossRetries() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .inScenario("movieinfo retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("MovieInfo Service Unavailable"))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .inScenario("movieinfo retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+        spanHandler.clear();
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk();
+
+        //then
+        var serverSpan = spanHandler.await(span -> span.kind() == Span.Kind.SERVER
+                && ("/v1/movies/" + movieId).equals(span.tag("http.path")));
+        var traceId = serverSpan.traceId();
+
+        var retrySpan = spanHandler.await(span -> traceId.equals(span.traceId()) && "retry".equals(span.name()));
+        assertEquals("1", retrySpan.tag("retry.attempt"));
+        assertEquals("MoviesInfoServerException", retrySpan.tag("retry.cause"));
+
+        var movieInfoAttempts = spanHandler.spans(traceId).stream()
+                .filter(span -> span.kind() == Span.Kind.CLIENT
+                        && ("/v1/movieinfos/" + movieId).equals(span.tag("http.path")))
+                .count();
+        assertEquals(2, movieInfoAttempts);
+
+        // every attempt carries the trace to the upstream
+        var movieInfoRequests = findAll(getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+        assertEquals(2, movieInfoRequests.size());
+        movieInfoRequests.forEach(request -> assertTrue(request.getHeaders().all().stream()
+                .anyMatch(header -> header.values().stream().anyMatch(value -> value.contains(traceId)))));
+    }
+
     @Test
     void retrieveMovieById_reviews_5XX() {
         //given
@@ -174,4 +450,144 @@ public class MoviesControllerIntgTest {
 
         WireMock.verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
     }
+
+    @Test
+    void retrieveMoviesByIds() {
+        //given
+        stubFor(get(urlPathEqualTo("/v1/movieinfos"))
+                .withQueryParam("ids", equalTo("1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfos.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoIds", equalTo("1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/v1/movies")
+                        .queryParam("ids", "1,2")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .value(movies -> {
+                    assertEquals(2, movies.size());
+                    assertEquals(2, movies.get(0).getReviewList().size());
+                    assertEquals(0, movies.get(1).getReviewList().size());
+                });
+        //then
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/movieinfos")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMoviesBatch() {
+        //given
+        stubFor(get(urlPathEqualTo("/v1/movieinfos"))
+                .withQueryParam("ids", equalTo("1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfos.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoIds", equalTo("1,2"))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        //when
+        webTestClient.post()
+                .uri("/v1/movies/batch")
+                .bodyValue(List.of("1", "2", "1"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .value(movies -> {
+                    assertEquals(2, movies.size());
+                    assertEquals("Batman Begins", movies.get(0).getMovieInfo().getName());
+                    assertEquals(0, movies.get(0).getReviewList().size());
+                });
+        //then
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/movieinfos")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMoviesBatch_nullId() {
+        //given
+        var movieIds = Arrays.asList("1", null);
+
+        //when
+        webTestClient.post()
+                .uri("/v1/movies/batch")
+                .bodyValue(movieIds)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        //then
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/movieinfos")));
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMoviesBatch_tooManyIds() {
+        //given
+        var movieIds = IntStream.rangeClosed(1, 101)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.toList());
+
+        //when
+        webTestClient.post()
+                .uri("/v1/movies/batch")
+                .bodyValue(movieIds)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        //then
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/movieinfos")));
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieById_reviewsCircuitOpen() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+        reviewsCircuitBreaker.transitionToForcedOpenState();
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assertEquals("Batman Begins", Objects.requireNonNull(movie).getMovieInfo().getName());
+                    assertEquals(0, movie.getReviewList().size());
+                });
+        //then
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveMovieById_moviesInfoCircuitOpen() {
+        //given
+        var movieId = "abc";
+        moviesInfoCircuitBreaker.transitionToForcedOpenState();
+
+        //when
+        webTestClient.get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus().isEqualTo(503);
+        //then
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+    }
 }
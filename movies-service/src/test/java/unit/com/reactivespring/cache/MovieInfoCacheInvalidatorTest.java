@@ -0,0 +1,40 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.stream.MovieInfoStreamBroadcaster;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoCacheInvalidatorTest {
+
+    private final MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+    private final MovieInfoStreamBroadcaster movieInfoStreamBroadcaster = mock(MovieInfoStreamBroadcaster.class);
+
+    @Test
+    void subscribe_evictsUpdatedAndDeletedMovieInfos() {
+        //given
+        var updated = new MovieInfo("abc", "Dark Knight Rises 1", 2012,
+                List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        // movies-info-service publishes a delete as a MovieInfo carrying only its id
+        var deleted = new MovieInfo("def", null, null, null, null);
+        when(movieInfoStreamBroadcaster.stream()).thenReturn(Flux.just(updated, deleted));
+        var invalidator = new MovieInfoCacheInvalidator(moviesInfoRestClient, movieInfoStreamBroadcaster,
+                new RestClientProperties());
+
+        //when
+        invalidator.subscribe();
+
+        //then
+        verify(moviesInfoRestClient).evictMovieInfo("abc");
+        verify(moviesInfoRestClient).evictMovieInfo("def");
+    }
+}
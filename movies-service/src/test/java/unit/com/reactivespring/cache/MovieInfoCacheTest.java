@@ -0,0 +1,93 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MovieInfoCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Mono<MovieInfo> load(String movieId) {
+        loads.incrementAndGet();
+        return Mono.just(new MovieInfo(movieId, "Batman Begins", 2005,
+                        List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")))
+                .delayElement(Duration.ofMillis(100));
+    }
+
+    @Test
+    void get_coalescesConcurrentMisses() {
+        var movieInfoCache = new MovieInfoCache(new RestClientProperties.Cache(), this::load);
+
+        var first = movieInfoCache.get("abc");
+        var second = movieInfoCache.get("abc");
+
+        StepVerifier.create(Mono.zip(first, second))
+                .assertNext(tuple -> assertEquals(tuple.getT1(), tuple.getT2()))
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidate() {
+        var movieInfoCache = new MovieInfoCache(new RestClientProperties.Cache(), this::load);
+
+        movieInfoCache.get("abc").block();
+        movieInfoCache.get("abc").block();
+        assertEquals(1, loads.get());
+
+        movieInfoCache.invalidate("abc");
+        movieInfoCache.get("abc").block();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_revalidatesStaleEntriesWithTheCachedValue() throws InterruptedException {
+        var properties = new RestClientProperties.Cache();
+        properties.setRefreshAfterWrite(Duration.ofMillis(50));
+        var revalidated = new AtomicInteger();
+        var movieInfoCache = new MovieInfoCache(properties, this::load, (movieId, cached) -> {
+            revalidated.incrementAndGet();
+            return Mono.just(cached);
+        });
+
+        var movieInfo = movieInfoCache.get("abc").block();
+        Thread.sleep(100);
+
+        // the stale entry is served while it is revalidated in the background
+        assertSame(movieInfo, movieInfoCache.get("abc").block());
+        for (int i = 0; i < 50 && revalidated.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, revalidated.get());
+        assertEquals(1, loads.get());
+        assertSame(movieInfo, movieInfoCache.get("abc").block());
+    }
+
+    @Test
+    void get_doesNotCacheFailures() {
+        var failures = new AtomicInteger();
+        var movieInfoCache = new MovieInfoCache(new RestClientProperties.Cache(), movieId -> {
+            failures.incrementAndGet();
+            return Mono.error(new RuntimeException("MovieInfo Service Unavailable"));
+        });
+
+        StepVerifier.create(movieInfoCache.get("abc"))
+                .expectErrorMessage("MovieInfo Service Unavailable")
+                .verify();
+        StepVerifier.create(movieInfoCache.get("abc"))
+                .expectErrorMessage("MovieInfo Service Unavailable")
+                .verify();
+        assertEquals(2, failures.get());
+    }
+}
@@ -0,0 +1,75 @@
+package com.reactivespring.client;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.tracing.SignalTracing;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class MoviesInfoRestClientTest {
+
+    private final Sinks.One<ClientResponse> staleResponse = Sinks.one();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private MoviesInfoRestClient moviesInfoRestClient() {
+        // the first request hangs until the test releases it, every later one answers with the updated movie info
+        var webClient = WebClient.builder()
+                .exchangeFunction(request -> requests.incrementAndGet() == 1
+                        ? staleResponse.asMono()
+                        : Mono.just(movieInfoResponse("Dark Knight Rises 1")))
+                .build();
+        var client = new MoviesInfoRestClient(webClient, new RestClientProperties(),
+                CircuitBreaker.ofDefaults("moviesInfo"), Bulkhead.ofDefaults("moviesInfo"),
+                new SimpleMeterRegistry(), mock(Tracer.class), new SignalTracing());
+        ReflectionTestUtils.setField(client, "moviesInfoUrl", "http://localhost:8080/v1/movieinfos");
+        return client;
+    }
+
+    private static ClientResponse movieInfoResponse(String name) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"movieInfoId\":\"abc\",\"name\":\"" + name + "\",\"year\":2005,"
+                        + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}")
+                .build();
+    }
+
+    @Test
+    void retrieveMovieInfo_loadAfterEvictionDoesNotJoinEarlierFlight() {
+        //given
+        var client = moviesInfoRestClient();
+        var beforeEviction = client.retrieveMovieInfo("abc").toFuture();
+
+        //when
+        client.evictMovieInfo("abc");
+        var afterEviction = client.retrieveMovieInfo("abc");
+
+        //then
+        StepVerifier.create(afterEviction)
+                .assertNext(movieInfo -> assertEquals("Dark Knight Rises 1", movieInfo.getName()))
+                .verifyComplete();
+
+        staleResponse.tryEmitValue(movieInfoResponse("Batman Begins"));
+        assertEquals("Batman Begins", beforeEviction.join().getName());
+
+        StepVerifier.create(client.retrieveMovieInfo("abc"))
+                .assertNext(movieInfo -> assertEquals("Dark Knight Rises 1", movieInfo.getName()))
+                .verifyComplete();
+        assertEquals(2, requests.get());
+    }
+}
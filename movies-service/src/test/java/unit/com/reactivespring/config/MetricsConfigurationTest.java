@@ -0,0 +1,39 @@
+package com.reactivespring.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsConfigurationTest {
+
+    @Test
+    void clientUriTemplateMeterFilter_boundsUriTags() {
+        //given
+        var meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new MetricsConfiguration().clientUriTemplateMeterFilter());
+        var uris = List.of(
+                "/v1/movieinfos/abc",
+                "/v1/movieinfos/def?fields=name,year",
+                "/v1/movieinfos?ids=abc,def,ghi",
+                "/v1/movieinfos/stream",
+                "/v1/reviews?movieInfoId=1",
+                "/v1/reviews?movieInfoId=2&fields=rating",
+                "/v1/reviews?movieInfoIds=1,2,3",
+                "/v1/reviews/summary?movieInfoId=1");
+
+        //when
+        uris.forEach(uri -> meterRegistry.timer("http.client.requests", "uri", uri).record(() -> { }));
+
+        //then
+        var tags = meterRegistry.find("http.client.requests").timers().stream()
+                .map(timer -> timer.getId().getTag("uri"))
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(List.of("/v1/movieinfos", "/v1/movieinfos/stream", "/v1/movieinfos/{id}", "/v1/reviews",
+                "/v1/reviews/summary"), tags);
+    }
+}
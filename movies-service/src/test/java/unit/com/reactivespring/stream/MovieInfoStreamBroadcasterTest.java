@@ -0,0 +1,96 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieInfoStreamBroadcasterTest {
+
+    private final Sinks.Many<MovieInfo> upstream = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MovieInfoStreamBroadcaster broadcaster(RestClientProperties restClientProperties) {
+        var moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+        when(moviesInfoRestClient.retrieveMovieInfoStream())
+                .thenReturn(upstream.asFlux().doOnSubscribe(subscription -> connections.incrementAndGet()));
+        return new MovieInfoStreamBroadcaster(moviesInfoRestClient, restClientProperties, meterRegistry);
+    }
+
+    private static MovieInfo movieInfo(String id) {
+        return new MovieInfo(id, "Batman Begins", 2005,
+                List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+    }
+
+    @Test
+    void stream_sharesOneUpstreamConnection() {
+        var broadcaster = broadcaster(new RestClientProperties());
+
+        var first = broadcaster.stream().take(2).collectList();
+        var second = broadcaster.stream().take(2).collectList();
+
+        StepVerifier.create(first.zipWith(second))
+                .then(() -> {
+                    upstream.tryEmitNext(movieInfo("1"));
+                    upstream.tryEmitNext(movieInfo("2"));
+                })
+                .assertNext(tuple -> {
+                    assertEquals(2, tuple.getT1().size());
+                    assertEquals(2, tuple.getT2().size());
+                })
+                .verifyComplete();
+
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    void stream_dropsOldestForSlowSubscriber() {
+        var restClientProperties = new RestClientProperties();
+        restClientProperties.getMovieInfoStream().setBufferSize(2);
+        var broadcaster = broadcaster(restClientProperties);
+
+        StepVerifier.create(broadcaster.stream(), 0)
+                .then(() -> {
+                    upstream.tryEmitNext(movieInfo("1"));
+                    upstream.tryEmitNext(movieInfo("2"));
+                    upstream.tryEmitNext(movieInfo("3"));
+                })
+                .thenRequest(2)
+                .assertNext(movieInfo -> assertEquals("2", movieInfo.getMovieInfoId()))
+                .assertNext(movieInfo -> assertEquals("3", movieInfo.getMovieInfoId()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(1.0, meterRegistry.get("movies.stream.dropped").counter().count());
+    }
+
+    @Test
+    void stream_disconnectsSlowSubscriber() {
+        var restClientProperties = new RestClientProperties();
+        restClientProperties.getMovieInfoStream().setBufferSize(1);
+        restClientProperties.getMovieInfoStream().setOverflowStrategy(RestClientProperties.OverflowStrategy.DISCONNECT);
+        var broadcaster = broadcaster(restClientProperties);
+
+        StepVerifier.create(broadcaster.stream(), 0)
+                .then(() -> {
+                    upstream.tryEmitNext(movieInfo("1"));
+                    upstream.tryEmitNext(movieInfo("2"));
+                })
+                .thenRequest(1)
+                .thenConsumeWhile(movieInfo -> true)
+                .expectError()
+                .verify();
+    }
+}
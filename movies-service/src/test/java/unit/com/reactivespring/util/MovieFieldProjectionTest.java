@@ -0,0 +1,34 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MovieFieldProjectionTest {
+
+    @Test
+    void parse_absent() {
+        assertSame(MovieFieldProjection.NONE, MovieFieldProjection.parse(null));
+        assertSame(MovieFieldProjection.NONE, MovieFieldProjection.parse(" "));
+    }
+
+    @Test
+    void parse_splitsByPrefixAndSorts() {
+        var projection = MovieFieldProjection.parse("movieInfo.year, movieInfo.name,reviewList.rating");
+
+        assertEquals(List.of("name", "year"), List.copyOf(projection.getMovieInfoFields()));
+        assertEquals(Set.of("rating"), projection.getReviewFields());
+    }
+
+    @Test
+    void parse_rejectsUnknownFields() {
+        assertThrows(IllegalArgumentException.class, () -> MovieFieldProjection.parse("name"));
+        assertThrows(IllegalArgumentException.class, () -> MovieFieldProjection.parse("movieInfo.budget"));
+        assertThrows(IllegalArgumentException.class, () -> MovieFieldProjection.parse("reviewList.author"));
+    }
+}
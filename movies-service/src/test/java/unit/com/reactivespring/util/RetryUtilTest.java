@@ -0,0 +1,124 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RestClientProperties;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryUtilTest {
+
+    @Test
+    void backoff_isBoundedByMinAndMax() {
+        var properties = new RestClientProperties.Retry();
+        properties.setMinBackoff(Duration.ofMillis(100));
+        properties.setMaxBackoff(Duration.ofSeconds(2));
+
+        for (long retry = 0; retry < 64; retry++) {
+            var backoff = RetryUtil.backoff(properties, retry).toMillis();
+            assertTrue(backoff >= 100 && backoff <= 2000, "backoff out of range : " + backoff);
+        }
+    }
+
+    @Test
+    void retrySpec_retriesServerExceptions() {
+        var properties = new RestClientProperties.Retry();
+        properties.setMinBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(5));
+        var attempts = new AtomicInteger();
+
+        var mono = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new MoviesInfoServerException("Server Exception"));
+        }).retryWhen(RetryUtil.retrySpec(properties, new RetryBudget(0.1, 10)));
+
+        StepVerifier.create(mono)
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    void retrySpec_doesNotRetryClientExceptions() {
+        var properties = new RestClientProperties.Retry();
+        var attempts = new AtomicInteger();
+
+        var mono = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new MoviesInfoClientException("Not Found", 404));
+        }).retryWhen(RetryUtil.retrySpec(properties, new RetryBudget(0.1, 10)));
+
+        StepVerifier.create(mono)
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retrySpec_stopsWhenBudgetIsExhausted() {
+        var properties = new RestClientProperties.Retry();
+        properties.setMinBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(5));
+        var attempts = new AtomicInteger();
+
+        var mono = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new MoviesInfoServerException("Server Exception"));
+        }).retryWhen(RetryUtil.retrySpec(properties, new RetryBudget(0.0, 1)));
+
+        StepVerifier.create(mono)
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void retryBudget() {
+        var retryBudget = new RetryBudget(0.5, 1);
+
+        assertTrue(retryBudget.tryAcquire());
+        assertFalse(retryBudget.tryAcquire());
+
+        retryBudget.deposit();
+        assertFalse(retryBudget.tryAcquire());
+        retryBudget.deposit();
+        assertTrue(retryBudget.tryAcquire());
+    }
+
+    @Test
+    void deadline() {
+        var flux = Flux.interval(Duration.ofMillis(50))
+                .transform(RetryUtil.deadline(Duration.ofMillis(200)));
+
+        StepVerifier.create(flux)
+                .thenConsumeWhile(tick -> true)
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void deadlineMono_coversRetries() {
+        var properties = new RestClientProperties.Retry();
+        properties.setMinBackoff(Duration.ofMillis(150));
+        properties.setMaxBackoff(Duration.ofMillis(150));
+        properties.setJitter(0);
+
+        var mono = Mono.<String>error(new MoviesInfoServerException("Server Exception"))
+                .retryWhen(RetryUtil.retrySpec(properties, new RetryBudget(0.1, 10)))
+                .transform(RetryUtil.deadlineMono(Duration.ofMillis(200)));
+
+        StepVerifier.create(mono)
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+}
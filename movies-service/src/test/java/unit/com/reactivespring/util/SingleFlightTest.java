@@ -0,0 +1,80 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, Integer> singleFlight = new SingleFlight<>("test", meterRegistry);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Flux<Integer> upstream() {
+        return Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.just(1, 2, 3).delayElements(Duration.ofMillis(50));
+        });
+    }
+
+    @Test
+    void execute_sharesInFlightCall() {
+        var first = singleFlight.execute("abc", this::upstream).collectList();
+        var second = singleFlight.execute("abc", this::upstream).collectList();
+
+        StepVerifier.create(Mono.zip(first, second))
+                .assertNext(tuple -> {
+                    assertEquals(3, tuple.getT1().size());
+                    assertEquals(3, tuple.getT2().size());
+                })
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+        assertEquals(1.0, meterRegistry.get("movies.singleflight.calls").tag("result", "coalesced").counter().count());
+    }
+
+    @Test
+    void execute_removesFailedCall() {
+        var failing = singleFlight.execute("abc", () -> {
+            calls.incrementAndGet();
+            return Flux.error(new RuntimeException("Upstream Unavailable"));
+        });
+
+        StepVerifier.create(failing)
+                .expectErrorMessage("Upstream Unavailable")
+                .verify();
+        assertEquals(0, singleFlight.inFlightCount());
+
+        StepVerifier.create(singleFlight.execute("abc", this::upstream))
+                .expectNextCount(3)
+                .verifyComplete();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void execute_removesCancelledCall() {
+        StepVerifier.create(singleFlight.execute("abc", this::upstream))
+                .expectNext(1)
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void executeMono() {
+        var mono = singleFlight.executeMono("abc", () -> Mono.fromCallable(calls::incrementAndGet));
+
+        StepVerifier.create(mono)
+                .expectNext(1)
+                .verifyComplete();
+    }
+}
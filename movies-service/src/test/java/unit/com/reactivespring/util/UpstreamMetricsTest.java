@@ -0,0 +1,88 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamMetrics upstreamMetrics = new UpstreamMetrics("movies-info", meterRegistry);
+
+    private long count(String operation, String outcome, String status) {
+        return meterRegistry.get(UpstreamMetrics.TIMER_NAME)
+                .tags("upstream", "movies-info", "operation", operation, "outcome", outcome, "status", status)
+                .timer()
+                .count();
+    }
+
+    @Test
+    void timedMono_success() {
+        //when
+        var result = Mono.just("abc")
+                .delayElement(Duration.ofMillis(10))
+                .transform(upstreamMetrics.timedMono("retrieveMovieInfo"));
+
+        //then
+        StepVerifier.create(result)
+                .expectNext("abc")
+                .verifyComplete();
+        assertEquals(1, count("retrieveMovieInfo", "SUCCESS", "2xx"));
+    }
+
+    @Test
+    void timedMono_clientError() {
+        //when
+        var result = Mono.<String>error(new MoviesInfoClientException("not found", 404))
+                .transform(upstreamMetrics.timedMono("retrieveMovieInfo"));
+
+        //then
+        StepVerifier.create(result)
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+        assertEquals(1, count("retrieveMovieInfo", "CLIENT_ERROR", "404"));
+    }
+
+    @Test
+    void timedMono_timeout() {
+        //when
+        var result = Mono.<String>error(new TimeoutException())
+                .transform(upstreamMetrics.timedMono("retrieveMovieInfo"));
+
+        //then
+        StepVerifier.create(result)
+                .expectError(TimeoutException.class)
+                .verify();
+        assertEquals(1, count("retrieveMovieInfo", "TIMEOUT", "NONE"));
+    }
+
+    @Test
+    void timedFlux_recordsOncePerSubscription() {
+        //given
+        var flux = Flux.just(1, 2, 3)
+                .concatWith(Mono.error(new ReviewsServerException("boom")))
+                .transform(upstreamMetrics.timedFlux("retrieveReviews"));
+
+        //when
+        StepVerifier.create(flux)
+                .expectNext(1, 2, 3)
+                .expectError(ReviewsServerException.class)
+                .verify();
+        StepVerifier.create(flux.take(1))
+                .expectNext(1)
+                .verifyComplete();
+
+        //then
+        assertEquals(1, count("retrieveReviews", "SERVER_ERROR", "5xx"));
+        assertEquals(1, count("retrieveReviews", "CANCELLED", "NONE"));
+    }
+}